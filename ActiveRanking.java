@@ -0,0 +1,373 @@
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/** Program that finds the top K bots of a large roster by choosing which
+  * matches to play, instead of playing every pairing.
+  * 
+  * Every bot's strength is fitted to all the matches played so far with
+  * the Bradley-Terry model, in which a bot of strength a wins a round
+  * against a bot of strength b with probability e^a / (e^a + e^b), a tie
+  * counting half. A bot that has met strong opponents is therefore not
+  * ranked below one that has met weak ones, as it would be by its mean
+  * margin. Each strength has a confidence interval from how far the log
+  * odds of the bot's matches stray from the fit. After a few matches against
+  * random opponents, each batch pairs the bots just inside the top K whose
+  * intervals reach lowest with the bots just outside it whose intervals
+  * reach highest, since those are the matches that can still change the
+  * top K. Batches are played in parallel. The ranking stops once the
+  * interval of every bot in the top K lies above the interval of every bot
+  * outside it, or once the top K has not changed for a number of batches.
+  */
+public class ActiveRanking {
+    
+    /** Smallest variance assumed for the log odds of a bot's matches, so
+      * that a few matches that fit well do not make its interval collapse.
+      */
+    private static final double MIN_VARIANCE = 0.04;
+    
+    /** Rounds every bot is taken to have tied against a bot of strength 0,
+      * so that a bot that has won or lost every round has a finite strength.
+      */
+    private static final double PRIOR_ROUNDS = 1;
+    
+    private static final int MAX_ITERATIONS = 10000;
+    private static final double TOLERANCE = 1e-9;
+    
+    /** What is known about one bot so far. */
+    static class Estimate {
+        String name;
+        List<Played> matches = new ArrayList<Played>();
+        double strength; // log Bradley-Terry strength, mean 0 over the roster
+        double spread;   // mean squared residual of its matches' log odds
+        
+        Estimate(String name) {
+            this.name = name;
+        }
+        
+        double strength() {
+            return this.strength;
+        }
+        
+        double halfWidth(double z) {
+            int n = this.matches.size();
+            if (n == 0)
+                return Double.POSITIVE_INFINITY;
+            return z * Math.sqrt(Math.max(this.spread, MIN_VARIANCE) / n);
+        }
+        
+        double lower(double z) {
+            return strength() - halfWidth(z);
+        }
+        
+        double upper(double z) {
+            return strength() + halfWidth(z);
+        }
+    }
+    
+    /** One match from one bot's side: its score, wins plus half the ties,
+      * out of the rounds played.
+      */
+    static class Played {
+        Estimate opponent;
+        double score;
+        long rounds;
+        
+        Played(Estimate opponent, double score, long rounds) {
+            this.opponent = opponent;
+            this.score = score;
+            this.rounds = rounds;
+        }
+        
+        /** Returns the log odds of the bot's score, kept finite. */
+        double logOdds() {
+            double s = Math.min(Math.max(this.score, 0.5), this.rounds - 0.5);
+            return Math.log(s / (this.rounds - s));
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java ActiveRanking <n> <roster> [options]");
+            System.out.println("where <n>      = number of rounds per match.");
+            System.out.println("      <roster> = file listing one bot class name per line,");
+            System.out.println("                 or a results file to take the bots from.");
+            System.out.println("Options:");
+            System.out.println("      -top <k>       = size of the top group to find (default 10).");
+            System.out.println("      -initial <m>   = matches each bot first plays against random");
+            System.out.println("                       opponents (default 3).");
+            System.out.println("      -batch <b>     = matches per batch (default 4 per thread).");
+            System.out.println("      -z <z>         = critical value of the intervals (default 1.96).");
+            System.out.println("      -patience <p>  = stop once the top k is unchanged for p");
+            System.out.println("                       batches (default 20).");
+            System.out.println("      -budget <m>    = most matches to play (default n(n-1)/2).");
+            System.out.println("      -out <file>    = results file to write.");
+            System.out.println("      -seed <seed>   = ranking seed (default random).");
+            System.out.println("      -threads <t>   = parallel matches (default number of cores).");
+            System.out.println("Example:");
+            System.out.println("java ActiveRanking 5000 roster.txt -top 5 -seed 1");
+            System.exit(-1);
+        }
+        
+        long numRounds = Long.parseLong(args[0]);
+        List<String> roster = League.usable(League.readRoster(Paths.get(args[1])));
+        int top = 10;
+        int initial = 3;
+        int batch = 0;
+        double z = 1.96;
+        int patience = 20;
+        long budget = (long)roster.size() * (roster.size() - 1) / 2;
+        Path out = null;
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-top"))
+                top = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-initial"))
+                initial = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-batch"))
+                batch = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-z"))
+                z = Double.parseDouble(args[++i]);
+            else if (args[i].equals("-patience"))
+                patience = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-budget"))
+                budget = Long.parseLong(args[++i]);
+            else if (args[i].equals("-out"))
+                out = Paths.get(args[++i]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        if (top < 1 || top >= roster.size()) {
+            System.out.println("Error: -top must be between 1 and the number " +
+                               "of usable bots less one (" +
+                               (roster.size() - 1) + ").");
+            System.exit(-1);
+        }
+        if (batch <= 0)
+            batch = 4 * threads;
+        
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<String, Estimate> estimates = new HashMap<String, Estimate>();
+        List<Estimate> bots = new ArrayList<Estimate>();
+        for (String name : roster) {
+            Estimate e = new Estimate(name);
+            estimates.put(name, e);
+            bots.add(e);
+        }
+        List<MatchResult> results = new ArrayList<MatchResult>();
+        
+        // Give every bot a first estimate
+        List<Match> matches = new ArrayList<Match>();
+        for (int m = 0; m < initial; m++)
+            for (int i = 0; i < bots.size(); i++)
+                matches.add(new Match(bots.get(i).name,
+                                      bots.get(opponent(i, bots.size(), random)).name,
+                                      numRounds, random.nextLong()));
+        play(matches, threads, estimates, results);
+        
+        // Then play the matches nearest the boundary until the top is settled
+        Set<String> leaders = leaders(bots, top);
+        int unchanged = 0;
+        int batches = 0;
+        String reason = "match budget spent";
+        while (results.size() < budget) {
+            if (separated(bots, top, z)) {
+                reason = "top " + top + " separated from the rest";
+                break;
+            }
+            if (unchanged >= patience) {
+                reason = "top " + top + " unchanged for " + patience + " batches";
+                break;
+            }
+            int size = (int)Math.min(batch, budget - results.size());
+            play(boundaryMatches(bots, top, z, size, numRounds, random),
+                 threads, estimates, results);
+            batches++;
+            Set<String> next = leaders(bots, top);
+            unchanged = next.equals(leaders) ? unchanged + 1 : 0;
+            leaders = next;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        if (out != null) {
+            try (PrintWriter writer =
+                     new PrintWriter(Files.newBufferedWriter(out))) {
+                for (MatchResult r : results)
+                    if (!r.isFailed())
+                        writer.println(r.toResultLine());
+            }
+        }
+        long roundRobin = (long)bots.size() * (bots.size() - 1) / 2;
+        System.out.printf("%d matches (%.1f%% of a %d-match round robin) in %d " +
+                          "batches, %.1f s, seed %d; stopped: %s%n",
+                          results.size(), 100.0 * results.size() / roundRobin,
+                          roundRobin, batches, seconds, seed, reason);
+        printTable(bots, top, z);
+    }
+    
+    /** Returns a random opponent for bot i other than itself. */
+    private static int opponent(int i, int bots, SplittableRandom random) {
+        int j = random.nextInt(bots - 1);
+        return (j >= i) ? j + 1 : j;
+    }
+    
+    /** Plays matches in parallel, adds their results to the estimates and
+      * fits the strengths again.
+      */
+    static void play(List<Match> matches, int threads,
+                     Map<String, Estimate> estimates,
+                     List<MatchResult> results) throws Exception {
+        for (MatchResult r : League.play(matches, threads)) {
+            results.add(r);
+            if (r.isFailed()) {
+                System.err.println("Error: " + r);
+                continue;
+            }
+            if (r.getRounds() == 0)
+                continue;
+            Estimate a = estimates.get(r.getPlayer1());
+            Estimate b = estimates.get(r.getPlayer2());
+            double half = r.getTies() / 2.0;
+            a.matches.add(new Played(b, r.getWins1() + half, r.getRounds()));
+            b.matches.add(new Played(a, r.getWins2() + half, r.getRounds()));
+        }
+        fit(estimates.values());
+    }
+    
+    /** Fits the Bradley-Terry strengths to every match played, by the
+      * minorization-maximization updates of Hunter (2004), starting from the
+      * previous fit. Then measures each bot's spread about the fit.
+      */
+    static void fit(Collection<Estimate> bots) {
+        for (int it = 0; it < MAX_ITERATIONS; it++) {
+            double change = 0;
+            for (Estimate e : bots) {
+                double p = Math.exp(e.strength);
+                double score = PRIOR_ROUNDS / 2;
+                double weight = PRIOR_ROUNDS / (p + 1);
+                for (Played m : e.matches) {
+                    score += m.score;
+                    weight += m.rounds / (p + Math.exp(m.opponent.strength));
+                }
+                double next = Math.log(score / weight);
+                change = Math.max(change, Math.abs(next - e.strength));
+                e.strength = next;
+            }
+            if (change < TOLERANCE)
+                break;
+        }
+        
+        double mean = 0;
+        for (Estimate e : bots)
+            mean += e.strength / bots.size();
+        for (Estimate e : bots)
+            e.strength -= mean;
+        for (Estimate e : bots) {
+            double sum = 0;
+            for (Played m : e.matches) {
+                double residual = m.logOdds()
+                    - (e.strength - m.opponent.strength);
+                sum += residual * residual;
+            }
+            e.spread = e.matches.isEmpty() ? 0 : sum / e.matches.size();
+        }
+    }
+    
+    /** Sorts the bots best first and returns the names of the top k. */
+    static Set<String> leaders(List<Estimate> bots, int k) {
+        Collections.sort(bots, Comparator.comparingDouble(Estimate::strength)
+                                         .reversed());
+        Set<String> leaders = new HashSet<String>();
+        for (int i = 0; i < k; i++)
+            leaders.add(bots.get(i).name);
+        return leaders;
+    }
+    
+    /** Returns whether every bot in the top k, as currently sorted, is
+      * confidently ahead of every bot outside it.
+      */
+    static boolean separated(List<Estimate> bots, int k, double z) {
+        double lowest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < k; i++)
+            lowest = Math.min(lowest, bots.get(i).lower(z));
+        for (int i = k; i < bots.size(); i++)
+            if (bots.get(i).upper(z) >= lowest)
+                return false;
+        return true;
+    }
+    
+    /** Picks the next batch: the bots in the top k ordered by how far their
+      * intervals reach down, paired with the bots outside it ordered by how
+      * far theirs reach up, for as long as the two intervals overlap.
+      * Overlapping pairs that are left over play random opponents, so the
+      * batch is never smaller than it could usefully be.
+      */
+    static List<Match> boundaryMatches(List<Estimate> bots, int k, double z,
+                                       int size, long numRounds,
+                                       SplittableRandom random) {
+        List<Estimate> inside = new ArrayList<Estimate>(bots.subList(0, k));
+        List<Estimate> outside =
+            new ArrayList<Estimate>(bots.subList(k, bots.size()));
+        Collections.sort(inside, Comparator.comparingDouble(e -> e.lower(z)));
+        Collections.sort(outside,
+                         Comparator.comparingDouble((Estimate e) -> e.upper(z))
+                                   .reversed());
+        
+        List<Match> matches = new ArrayList<Match>();
+        int pairs = Math.min(inside.size(), outside.size());
+        for (int i = 0; i < pairs && matches.size() < size; i++) {
+            Estimate a = inside.get(i);
+            Estimate b = outside.get(i);
+            if (b.upper(z) < a.lower(z))
+                break;
+            matches.add(new Match(a.name, b.name, numRounds, random.nextLong()));
+        }
+        
+        // Fill the batch with random opponents for the least certain bots
+        List<Estimate> uncertain = new ArrayList<Estimate>(bots);
+        Collections.sort(uncertain, Comparator.comparingDouble(
+                             (Estimate e) -> e.halfWidth(z)).reversed());
+        for (int i = 0; matches.size() < size; i = (i + 1) % uncertain.size()) {
+            Estimate a = uncertain.get(i);
+            Estimate b = bots.get(opponent(bots.indexOf(a), bots.size(), random));
+            matches.add(new Match(a.name, b.name, numRounds, random.nextLong()));
+        }
+        return matches;
+    }
+    
+    static void printTable(List<Estimate> bots, int k, double z) {
+        System.out.printf("%-4s %-24s %8s %10s %10s%n", "Pos", "Bot",
+                          "Matches", "Strength", "+/-");
+        for (int i = 0; i < bots.size(); i++) {
+            Estimate e = bots.get(i);
+            if (i == k)
+                System.out.println("---- top " + k + " ----");
+            System.out.printf("%-4d %-24s %8d %10.4f %10.4f%n", i + 1, e.name,
+                              e.matches.size(), e.strength(), e.halfWidth(z));
+        }
+    }
+    
+}
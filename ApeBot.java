@@ -3,7 +3,12 @@
   * 
   * @author RR
   */
-public class ApeBot implements RoShamBot {
+public class ApeBot implements RoShamBot, Snapshottable {
+    
+    /** Returns a new ApeBot; the bot keeps no state. */
+    public ApeBot copy() {
+        return new ApeBot();
+    }
     
     /** Returns the same action as the opponent's previous action.
       * 
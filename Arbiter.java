@@ -1,5 +1,9 @@
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
 
 /** Judge for running a single match between two Rock-Paper-Scissors bots.
   * 
@@ -7,23 +11,61 @@ import java.util.Arrays;
   */
 public class Arbiter {
 
-    private int roundsCompleted;
+    // OUTCOME[a1.ordinal()][a2.ordinal()] is the index into score that the
+    // round is credited to: 0 = player 1 wins, 1 = tie, 2 = player 2 wins.
+    private static final int[][] OUTCOME = {
+        //  ROCK PAPER SCISSORS    (player 2)
+        {   1,   2,    0 },     // ROCK      (player 1)
+        {   0,   1,    2 },     // PAPER
+        {   2,   0,    1 }      // SCISSORS
+    };
+    
+    private long roundsCompleted;
     private Action[] lastRound; // 0 = player 1's action, 1 = player 2's action
     private RoShamBot player1;
     private RoShamBot player2;
-    private int[] score; // score[0] = player 1 wins, score[2] = player 2 wins
+    private long[] score; // score[0] = player 1 wins, score[2] = player 2 wins
+    private MatchRecorder recorder; // null unless the match is being recorded
+    private long seed;
+    private LatencyHistogram[] latency; // per seat; null unless timing moves
+    private DeadlineBot[] deadlines; // per seat; null unless moves are timed out
+    private int maxViolations;
+    private int forfeit; // seat that forfeited the match, or 0
+    private com.sun.management.ThreadMXBean threads; // null unless metering
+    private long[] allocated; // bytes allocated by each seat's moves
+    private long meteredRounds;
+    private ScoreTrajectory trajectory; // null unless sampling the score
     
-    /** Intializes a new match between two specified bots.
+    /** Intializes a new match between two specified bots, with a seed
+      * chosen at random.
       * 
       * @param player1 the first bot.
       * @param player2 the second bot.
       */
     public Arbiter(RoShamBot player1, RoShamBot player2) {
+        this(player1, player2, new SplittableRandom().nextLong());
+    }
+    
+    /** Intializes a new match between two specified bots. Each bot that is
+      * Randomized gets its own random stream derived from the seed, so the
+      * match plays out identically whenever it is run with the same seed.
+      * 
+      * @param player1 the first bot.
+      * @param player2 the second bot.
+      * @param seed the match seed.
+      */
+    public Arbiter(RoShamBot player1, RoShamBot player2, long seed) {
+        this.seed = seed;
+        if (player1 instanceof Randomized)
+            ((Randomized)player1).setRandom(seatRandom(seed, 1));
+        if (player2 instanceof Randomized)
+            ((Randomized)player2).setRandom(seatRandom(seed, 2));
+        
         this.roundsCompleted = 0;
         this.lastRound = new Action[2];
         this.player1 = player1;
         this.player2 = player2;
-        this.score = new int[3];
+        this.score = new long[3];
     }
     
     /** Returns the current score of this match.
@@ -31,17 +73,252 @@ public class Arbiter {
       * @return an array where the first element contains the number of wins
       * for player 1, the second element is the number of ties, and the third
       * element is the number of wins for player 2.
+      * @throws ArithmeticException if a count no longer fits in an int; use
+      *         getScore() for matches that long.
       */
     public int[] getCurrentScore() {
+        return new int[] { Math.toIntExact(this.score[0]),
+                           Math.toIntExact(this.score[1]),
+                           Math.toIntExact(this.score[2]) };
+    }
+    
+    /** Returns the current score of this match, for matches of any length.
+      * 
+      * @return wins for player 1, ties and wins for player 2.
+      */
+    public long[] getScore() {
         return Arrays.copyOf(this.score, this.score.length);
     }
     
+    /** Returns the number of rounds played so far. */
+    public long getRoundsCompleted() {
+        return this.roundsCompleted;
+    }
+    
+    /** Returns the random stream that a match with the given seed hands to
+      * the bot in the given seat.
+      * 
+      * @param seed the match seed.
+      * @param seat 1 for player 1, 2 for player 2.
+      */
+    public static SplittableRandom seatRandom(long seed, int seat) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom random = root.split();
+        for (int i = 1; i < seat; i++)
+            random = root.split();
+        return random;
+    }
+    
+    /** Returns the seed of this match. */
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    /** Returns a new match that continues this one from its current round,
+      * with copies of both bots. The continuation draws its random moves
+      * from streams derived from its own seed, so forks with different seeds
+      * explore different futures while the same seed always gives the same
+      * one. Latency, allocation and deadline tracking, the recorder and the
+      * trajectory are not carried over.
+      * 
+      * @param seed the seed of the continuation.
+      * @throws UnsupportedOperationException if either bot is not
+      *         Snapshottable.
+      */
+    public Arbiter fork(long seed) {
+        for (RoShamBot player : new RoShamBot[] { this.player1, this.player2 })
+            if (!(player instanceof Snapshottable))
+                throw new UnsupportedOperationException(
+                    player.getClass().getName() + " is not Snapshottable");
+        Arbiter fork = new Arbiter(((Snapshottable)this.player1).copy(),
+                                   ((Snapshottable)this.player2).copy(), seed);
+        fork.roundsCompleted = this.roundsCompleted;
+        fork.lastRound = Arrays.copyOf(this.lastRound, this.lastRound.length);
+        fork.score = Arrays.copyOf(this.score, this.score.length);
+        return fork;
+    }
+    
+    /** Times every subsequent getNextMove call of both players. Matches run
+      * a little slower while timing is on, since each round is played on its
+      * own rather than in a batch.
+      */
+    public void enableLatencyTracking() {
+        if (this.latency == null)
+            this.latency = new LatencyHistogram[] { new LatencyHistogram(),
+                                                    new LatencyHistogram() };
+    }
+    
+    /** Returns the getNextMove latencies recorded for a player, or null if
+      * latency tracking is off.
+      * 
+      * @param seat 1 for player 1, 2 for player 2.
+      */
+    public LatencyHistogram getLatency(int seat) {
+        return (this.latency == null) ? null : this.latency[seat - 1];
+    }
+    
+    /** Charges the bytes allocated by every subsequent getNextMove call to
+      * the player that made it. Like latency tracking, this plays the match
+      * one round at a time.
+      * 
+      * @throws UnsupportedOperationException if this JVM cannot measure
+      *         per-thread allocation.
+      */
+    public void enableAllocationTracking() {
+        if (this.threads != null)
+            return;
+        java.lang.management.ThreadMXBean bean =
+            ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            throw new UnsupportedOperationException(
+                "per-thread allocation is not available on this JVM");
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)bean;
+        if (!threads.isThreadAllocatedMemorySupported())
+            throw new UnsupportedOperationException(
+                "per-thread allocation is not available on this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        this.threads = threads;
+        this.allocated = new long[2];
+    }
+    
+    /** Returns the bytes allocated by a player's moves since allocation
+      * tracking was turned on, or -1 if it is off.
+      * 
+      * @param seat 1 for player 1, 2 for player 2.
+      */
+    public long getAllocatedBytes(int seat) {
+        return (this.allocated == null) ? -1 : this.allocated[seat - 1];
+    }
+    
+    /** Returns the number of rounds played with allocation tracking on. */
+    public long getMeteredRounds() {
+        return this.meteredRounds;
+    }
+    
+    /** Puts both players on a per-move deadline, playing a uniform random
+      * move (as NashBot does) whenever a player misses it.
+      * 
+      * @param timeoutNanos the time allowed for each move.
+      * @param maxViolations the number of missed deadlines after which a
+      *        player forfeits the match.
+      */
+    public void setMoveDeadline(long timeoutNanos, int maxViolations) {
+        setMoveDeadline(timeoutNanos, maxViolations, NashBot::new);
+    }
+    
+    /** Puts both players on a per-move deadline. Each player's moves run on
+      * a thread of their own, and a player that misses the deadline has a
+      * move of its fallback bot played instead. Once a player has missed
+      * maxViolations deadlines it forfeits, and no further rounds are
+      * played.
+      * 
+      * @param timeoutNanos the time allowed for each move.
+      * @param maxViolations the number of missed deadlines after which a
+      *        player forfeits the match.
+      * @param fallback creates the fallback bot for each player. Randomized
+      *        fallbacks get random streams derived from the match seed.
+      */
+    public void setMoveDeadline(long timeoutNanos, int maxViolations,
+                                Supplier<? extends RoShamBot> fallback) {
+        close();
+        this.deadlines = new DeadlineBot[2];
+        RoShamBot[] players = { this.player1, this.player2 };
+        for (int i = 0; i < 2; i++) {
+            RoShamBot backup = fallback.get();
+            if (backup instanceof Randomized)
+                ((Randomized)backup).setRandom(seatRandom(this.seed, i + 3));
+            this.deadlines[i] = new DeadlineBot(players[i], backup,
+                                                timeoutNanos);
+        }
+        this.maxViolations = maxViolations;
+    }
+    
+    /** Returns the number of deadlines a player has missed.
+      * 
+      * @param seat 1 for player 1, 2 for player 2.
+      */
+    public int getViolations(int seat) {
+        return (this.deadlines == null) ? 0
+            : this.deadlines[seat - 1].getViolations();
+    }
+    
+    /** Returns the seat (1 or 2) of the player that forfeited the match by
+      * missing too many deadlines, or 0 if neither has.
+      */
+    public int getForfeit() {
+        return this.forfeit;
+    }
+    
+    /** Stops the threads used to enforce move deadlines, if any. No more
+      * rounds can be played under a deadline afterwards, but the violation
+      * counts remain available.
+      */
+    public void close() {
+        if (this.deadlines != null) {
+            this.deadlines[0].close();
+            this.deadlines[1].close();
+        }
+    }
+    
+    /** Samples the score from now on at geometrically spaced rounds; see
+      * ScoreTrajectory. Batches are split at each checkpoint, so the cost is
+      * a few hundred extra batches however long the match runs. If rounds
+      * have already been played, the current score is the first point.
+      */
+    public void enableScoreTrajectory() {
+        if (this.trajectory != null)
+            return;
+        this.trajectory = new ScoreTrajectory();
+        // Moves the next checkpoint past the rounds already played
+        if (this.roundsCompleted > 0)
+            this.trajectory.record(this.roundsCompleted, this.score);
+    }
+    
+    /** Returns the sampled score up to the latest round, or null if the
+      * trajectory is not being recorded.
+      */
+    public ScoreTrajectory getTrajectory() {
+        if (this.trajectory != null)
+            this.trajectory.record(this.roundsCompleted, this.score);
+        return this.trajectory;
+    }
+    
+    private void checkpoint() {
+        if (this.roundsCompleted >= this.trajectory.getNextCheckpoint())
+            this.trajectory.record(this.roundsCompleted, this.score);
+    }
+    
+    /** Records every subsequent round of this match to a transcript.
+      * 
+      * @param recorder the transcript to write to, or null to stop
+      *        recording. The caller remains responsible for closing it.
+      */
+    public void setRecorder(MatchRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    private void record(Action a1, Action a2) {
+        try {
+            this.recorder.record(a1, a2);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
     
-    /** Plays a single round between player 1 and 2. */
+    /** Plays a single round between player 1 and 2. Does nothing once a
+      * player has forfeited.
+      */
     public void runRound() {
         Action a1;
         Action a2;
         
+        if (isInstrumented()) {
+            runInstrumentedRound();
+            return;
+        }
+        
         if (roundsCompleted == 0) {
             // For very first round, we pretend that both players threw ROCK
             // on previous round.
@@ -54,6 +331,70 @@ public class Arbiter {
             a2 = player2.getNextMove(this.lastRound[0]);
         }
         
+        finishRound(a1, a2);
+    }
+    
+    private boolean isInstrumented() {
+        return this.latency != null || this.deadlines != null
+            || this.threads != null;
+    }
+    
+    /** Plays a single round with move timing, allocation tracking and
+      * deadlines, whichever are turned on.
+      */
+    private void runInstrumentedRound() {
+        if (this.forfeit != 0)
+            return;
+        Action last1 = (roundsCompleted == 0) ? Action.ROCK : this.lastRound[0];
+        Action last2 = (roundsCompleted == 0) ? Action.ROCK : this.lastRound[1];
+        RoShamBot p1 = (this.deadlines == null) ? this.player1 : this.deadlines[0];
+        RoShamBot p2 = (this.deadlines == null) ? this.player2 : this.deadlines[1];
+        
+        long alloc1 = allocatedBytes(0);
+        long start = System.nanoTime();
+        Action a1 = p1.getNextMove(last2);
+        long nanos1 = System.nanoTime() - start;
+        alloc1 = allocatedBytes(0) - alloc1;
+        
+        long alloc2 = allocatedBytes(1);
+        start = System.nanoTime();
+        Action a2 = p2.getNextMove(last1);
+        long nanos2 = System.nanoTime() - start;
+        alloc2 = allocatedBytes(1) - alloc2;
+        
+        if (this.latency != null) {
+            this.latency[0].record(nanos1);
+            this.latency[1].record(nanos2);
+        }
+        if (this.threads != null) {
+            this.allocated[0] += alloc1;
+            this.allocated[1] += alloc2;
+            this.meteredRounds++;
+        }
+        
+        finishRound(a1, a2);
+        
+        if (this.deadlines != null) {
+            if (this.deadlines[0].getViolations() >= this.maxViolations)
+                this.forfeit = 1;
+            else if (this.deadlines[1].getViolations() >= this.maxViolations)
+                this.forfeit = 2;
+        }
+    }
+    
+    /** Returns the bytes allocated so far by the thread a seat's moves run
+      * on, or 0 if allocation tracking is off.
+      */
+    private long allocatedBytes(int index) {
+        if (this.threads == null)
+            return 0;
+        long thread = (this.deadlines == null) ? Thread.currentThread().getId()
+                                               : this.deadlines[index].getThreadId();
+        return this.threads.getThreadAllocatedBytes(thread);
+    }
+    
+    /** Scores a round and records the player actions. */
+    private void finishRound(Action a1, Action a2) {
         // Determine winner, update scores and record the player actions.
         boolean p1Win = 
             ((       (a1 == Action.ROCK) && (a2 == Action.SCISSORS))
@@ -72,8 +413,97 @@ public class Arbiter {
         else
             this.score[1]++;
         
+        if (this.recorder != null)
+            record(a1, a2);
+        
         this.lastRound[0] = a1;
         this.lastRound[1] = a2;
         this.roundsCompleted++;
+        if (this.trajectory != null)
+            checkpoint();
+    }
+    
+    /** Plays a batch of rounds between player 1 and 2. Gives the same result
+      * as calling runRound() n times, but looks outcomes up in a table and
+      * keeps the running score and last actions in locals until the batch is
+      * done.
+      * 
+      * @param n the number of rounds to play.
+      */
+    public void runRounds(long n) {
+        if (n <= 0)
+            return;
+        if (isInstrumented()) {
+            for (long i = 0; i < n && this.forfeit == 0; i++)
+                runInstrumentedRound();
+            return;
+        }
+        if (this.trajectory == null) {
+            playBatch(n);
+            return;
+        }
+        
+        // End a batch at each checkpoint so that the score there is exact
+        while (n > 0) {
+            long batch = Math.min(n, this.trajectory.getNextCheckpoint()
+                                     - this.roundsCompleted);
+            playBatch(batch);
+            n -= batch;
+            checkpoint();
+        }
+    }
+    
+    private void playBatch(long n) {
+        RoShamBot p1 = this.player1;
+        RoShamBot p2 = this.player2;
+        boolean recording = (this.recorder != null);
+        
+        // For very first round, we pretend that both players threw ROCK on
+        // previous round.
+        Action last1 = (roundsCompleted == 0) ? Action.ROCK : this.lastRound[0];
+        Action last2 = (roundsCompleted == 0) ? Action.ROCK : this.lastRound[1];
+        long p1Wins = 0;
+        long p2Wins = 0;
+        
+        for (long i = 0; i < n; i++) {
+            Action a1 = p1.getNextMove(last2);
+            Action a2 = p2.getNextMove(last1);
+            int outcome = OUTCOME[a1.ordinal()][a2.ordinal()];
+            if (outcome == 0)
+                p1Wins++;
+            else if (outcome == 2)
+                p2Wins++;
+            if (recording)
+                record(a1, a2);
+            last1 = a1;
+            last2 = a2;
+        }
+        
+        this.score[0] += p1Wins;
+        this.score[1] += n - p1Wins - p2Wins;
+        this.score[2] += p2Wins;
+        this.lastRound[0] = last1;
+        this.lastRound[1] = last2;
+        this.roundsCompleted += n;
+    }
+    
+    /** Plays up to maxRounds rounds between player 1 and 2, stopping early
+      * once the rule finds the result decided.
+      * 
+      * @param maxRounds the most rounds to play.
+      * @param stop the rule, checked every stop.getCheckInterval() rounds.
+      * @return the number of rounds actually played.
+      */
+    public long runUntilDecided(long maxRounds, EarlyStop stop) {
+        long start = this.roundsCompleted;
+        long played = 0;
+        while (played < maxRounds && this.forfeit == 0) {
+            long batch = Math.min(stop.getCheckInterval(), maxRounds - played);
+            runRounds(batch);
+            played = this.roundsCompleted - start;
+            if (stop.isDecided(this.score, maxRounds))
+                break;
+        }
+        return played;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+/** Program that measures how many rounds per second the Arbiter can run,
+  * comparing the one-round-at-a-time runRound() loop against the batched
+  * runRounds() path.
+  * 
+  * Cheap bots such as ApeBot and SolidAsARockBot make the Arbiter's own
+  * overhead the dominant cost, so they are the default pairing. In a league
+  * the Arbiter's call sites see many different bot classes, so the benchmark
+  * first plays a few other pairings through both paths; otherwise the JIT
+  * inlines two constant bots and folds the whole match away.
+  */
+public class ArbiterBenchmark {
+    
+    private static final int TRIALS = 5;
+    
+    private static final String[] PROFILE_BOTS = {
+        "ApeBot", "SolidAsARockBot", "NashBot", "MixedBot"
+    };
+    
+    // Sink for match scores so the JIT cannot discard the matches.
+    private static long checksum;
+    
+    public static void main(String[] args) throws Exception {
+        String name1 = (args.length > 0) ? args[0] : "ApeBot";
+        String name2 = (args.length > 1) ? args[1] : "SolidAsARockBot";
+        long numRounds = (args.length > 2) ? Long.parseLong(args[2]) : 50000000L;
+        
+        System.out.println("Benchmarking " + name1 + " vs " + name2 + ", " +
+                           numRounds + " rounds per trial");
+        
+        for (String warm1 : PROFILE_BOTS)
+            for (String warm2 : PROFILE_BOTS) {
+                roundsPerSecond(warm1, warm2, 100000, false);
+                roundsPerSecond(warm1, warm2, 100000, true);
+            }
+        
+        // The first trial of each mode doubles as JIT warm-up and is not
+        // reported.
+        for (int trial = 0; trial <= TRIALS; trial++) {
+            double single = roundsPerSecond(name1, name2, numRounds, false);
+            double batched = roundsPerSecond(name1, name2, numRounds, true);
+            if (trial == 0)
+                continue;
+            System.out.printf("Trial %d: runRound %,.0f rounds/sec, " +
+                              "runRounds %,.0f rounds/sec (%.2fx)%n",
+                              trial, single, batched, batched / single);
+        }
+        System.out.println("(checksum " + checksum + ")");
+    }
+    
+    /** Plays a fresh match and returns the measured throughput. */
+    private static double roundsPerSecond(String name1, String name2,
+                                          long numRounds, boolean batched)
+        throws Exception {
+        RoShamBot player1 = (RoShamBot)Class.forName(name1)
+            .getDeclaredConstructor().newInstance();
+        RoShamBot player2 = (RoShamBot)Class.forName(name2)
+            .getDeclaredConstructor().newInstance();
+        Arbiter judge = new Arbiter(player1, player2);
+        
+        long start = System.nanoTime();
+        if (batched)
+            judge.runRounds(numRounds);
+        else
+            for (long i = 0; i < numRounds; i++)
+                judge.runRound();
+        long elapsed = System.nanoTime() - start;
+        checksum += judge.getScore()[1];
+        
+        return numRounds / (elapsed / 1e9);
+    }
+    
+}
@@ -0,0 +1,328 @@
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** Bootstrap confidence intervals for a league table.
+  * 
+  * The league is described by the trials of every pairing: each trial is one
+  * match, scored as player 1's win margin per round played, so that a match
+  * stopped early counts as much as one played in full. A resample redraws
+  * the trials of every pairing with replacement, totals each bot's margin
+  * and ranks the bots by it. Over many resamples this gives an interval for
+  * each bot's total and for its position in the table, and how often each
+  * bot finished ahead of each other one. A difference in rank is reported
+  * as meaningful when the bots finish in the same order in at least 97.5%
+  * of resamples, a two-sided test at the 5% level.
+  * 
+  * Resamples are split across a fork-join pool. Each resample draws from
+  * its own random stream, derived from the seed and the resample number, so
+  * the intervals do not depend on the number of threads.
+  */
+public class Bootstrap {
+    
+    /** Resamples a leaf task handles without splitting further. */
+    private static final int LEAF = 256;
+    
+    private static final double CONFIDENCE = 0.95;
+    
+    private String[] bots;
+    private int[] player1; // per pairing, index of the first bot
+    private int[] player2;
+    private double[][] trials; // per pairing, player 1's margin per round in each trial
+    private double[] observed; // each bot's total over the actual trials
+    
+    /** Groups match results into trials of each pairing. Failed matches
+      * are left out.
+      */
+    public Bootstrap(List<String> roster, List<MatchResult> results) {
+        this.bots = roster.toArray(new String[0]);
+        Map<String, Integer> index = new HashMap<String, Integer>();
+        for (int i = 0; i < this.bots.length; i++)
+            index.put(this.bots[i], i);
+        
+        Map<Long, List<Double>> byPair = new HashMap<Long, List<Double>>();
+        List<Long> order = new ArrayList<Long>();
+        for (MatchResult r : results) {
+            Integer i = index.get(r.getPlayer1());
+            Integer j = index.get(r.getPlayer2());
+            if (r.isFailed() || r.getRounds() == 0 || i == null || j == null
+                || i.equals(j))
+                continue;
+            double margin = (double)(r.getWins1() - r.getWins2()) / r.getRounds();
+            if (i > j) {
+                Integer swap = i;
+                i = j;
+                j = swap;
+                margin = -margin;
+            }
+            long key = (long)i * this.bots.length + j;
+            List<Double> margins = byPair.get(key);
+            if (margins == null) {
+                margins = new ArrayList<Double>();
+                byPair.put(key, margins);
+                order.add(key);
+            }
+            margins.add(margin);
+        }
+        
+        this.player1 = new int[order.size()];
+        this.player2 = new int[order.size()];
+        this.trials = new double[order.size()][];
+        this.observed = new double[this.bots.length];
+        for (int p = 0; p < order.size(); p++) {
+            long key = order.get(p);
+            this.player1[p] = (int)(key / this.bots.length);
+            this.player2[p] = (int)(key % this.bots.length);
+            List<Double> margins = byPair.get(key);
+            this.trials[p] = new double[margins.size()];
+            for (int t = 0; t < margins.size(); t++) {
+                this.trials[p][t] = margins.get(t);
+                this.observed[this.player1[p]] += margins.get(t);
+                this.observed[this.player2[p]] -= margins.get(t);
+            }
+        }
+    }
+    
+    /** Returns the fewest trials of any pairing, or 0 if there are none.
+      * With a single trial a pairing is the same in every resample, and
+      * contributes no spread to the intervals.
+      */
+    public int getMinTrials() {
+        int min = (this.trials.length == 0) ? 0 : Integer.MAX_VALUE;
+        for (double[] t : this.trials)
+            min = Math.min(min, t.length);
+        return min;
+    }
+    
+    /** What a range of resamples found. */
+    private class Tally {
+        long[][] ranks;    // ranks[bot][position] = resamples with that rank
+        long[][] ahead;    // ahead[a][b] = resamples where a beat b's total
+        
+        Tally() {
+            int n = Bootstrap.this.bots.length;
+            this.ranks = new long[n][n];
+            this.ahead = new long[n][n];
+        }
+        
+        void merge(Tally other) {
+            for (int a = 0; a < this.ranks.length; a++) {
+                for (int b = 0; b < this.ranks.length; b++) {
+                    this.ranks[a][b] += other.ranks[a][b];
+                    this.ahead[a][b] += other.ahead[a][b];
+                }
+            }
+        }
+    }
+    
+    /** Runs resamples [from, to), splitting the range in half until it is
+      * small enough to run directly.
+      */
+    private class Resample extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        private final long seed;
+        private final double[][] totals;
+        
+        Resample(int from, int to, long seed, double[][] totals) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+            this.totals = totals;
+        }
+        
+        @Override
+        protected Tally compute() {
+            if (this.to - this.from > LEAF) {
+                int mid = (this.from + this.to) >>> 1;
+                Resample left = new Resample(this.from, mid, this.seed,
+                                             this.totals);
+                left.fork();
+                Tally tally = new Resample(mid, this.to, this.seed,
+                                           this.totals).compute();
+                tally.merge(left.join());
+                return tally;
+            }
+            
+            int n = Bootstrap.this.bots.length;
+            Tally tally = new Tally();
+            Integer[] order = new Integer[n];
+            for (int s = this.from; s < this.to; s++) {
+                SplittableRandom random =
+                    new SplittableRandom(Trials.trialSeed(this.seed, s));
+                double[] total = new double[n];
+                for (int p = 0; p < Bootstrap.this.trials.length; p++) {
+                    double[] margins = Bootstrap.this.trials[p];
+                    double sum = 0;
+                    for (int t = 0; t < margins.length; t++)
+                        sum += margins[random.nextInt(margins.length)];
+                    total[Bootstrap.this.player1[p]] += sum;
+                    total[Bootstrap.this.player2[p]] -= sum;
+                }
+                this.totals[s] = total;
+                
+                for (int i = 0; i < n; i++)
+                    order[i] = i;
+                Arrays.sort(order, (a, b) -> Double.compare(total[b], total[a]));
+                for (int position = 0; position < n; position++)
+                    tally.ranks[order[position]][position]++;
+                for (int a = 0; a < n; a++)
+                    for (int b = 0; b < n; b++)
+                        if (total[a] > total[b])
+                            tally.ahead[a][b]++;
+            }
+            return tally;
+        }
+    }
+    
+    /** Runs the bootstrap and prints the league table with intervals.
+      * 
+      * @param resamples the number of resamples.
+      * @param seed the seed of the resamples.
+      * @param threads the parallelism of the fork-join pool.
+      */
+    public void run(int resamples, long seed, int threads) throws Exception {
+        int n = this.bots.length;
+        double[][] totals = new double[resamples][];
+        long start = System.nanoTime();
+        Tally tally;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            tally = pool.submit(new Resample(0, resamples, seed, totals)).get();
+        }
+        finally {
+            pool.shutdown();
+        }
+        
+        // Percentiles of each bot's total
+        double tail = (1 - CONFIDENCE) / 2;
+        double[] low = new double[n];
+        double[] high = new double[n];
+        double[] column = new double[resamples];
+        for (int b = 0; b < n; b++) {
+            for (int s = 0; s < resamples; s++)
+                column[s] = totals[s][b];
+            Arrays.sort(column);
+            low[b] = column[(int)Math.floor(tail * (resamples - 1))];
+            high[b] = column[(int)Math.ceil((1 - tail) * (resamples - 1))];
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        Integer[] ranking = new Integer[n];
+        for (int i = 0; i < n; i++)
+            ranking[i] = i;
+        Arrays.sort(ranking,
+                    (a, b) -> Double.compare(this.observed[b], this.observed[a]));
+        
+        int maxTrials = 0;
+        for (double[] t : this.trials)
+            maxTrials = Math.max(maxTrials, t.length);
+        System.out.printf("%d resamples of %d pairings (up to %d trials each) " +
+                          "in %.2f s on %d threads, seed %d%n", resamples,
+                          this.trials.length, maxTrials, seconds, threads,
+                          seed);
+        System.out.printf("%-4s %-24s %10s %23s %9s %13s%n", "Pos", "Bot",
+                          "Margin", "95% interval", "Ranks", "Ahead of next");
+        int meaningful = 0;
+        for (int position = 0; position < n; position++) {
+            int b = ranking[position];
+            String next = "";
+            if (position + 1 < n) {
+                double p = (double)tally.ahead[b][ranking[position + 1]]
+                    / resamples;
+                boolean significant = p >= 1 - tail;
+                if (significant)
+                    meaningful++;
+                next = String.format("%.3f%s", p, significant ? " *" : "  ");
+            }
+            System.out.printf("%-4d %-24s %10.4f [%10.4f, %10.4f] %4d-%-4d %13s%n",
+                              position + 1, this.bots[b], this.observed[b],
+                              low[b], high[b], rankBound(tally.ranks[b], tail,
+                                                         resamples) + 1,
+                              rankBound(tally.ranks[b], 1 - tail, resamples) + 1,
+                              next);
+        }
+        System.out.printf("* = ahead of the next bot in at least %.1f%% of " +
+                          "resamples; %d of %d places are meaningful%n",
+                          100 * (1 - tail), meaningful, n - 1);
+    }
+    
+    /** Returns the position at the given quantile of a rank distribution. */
+    private static int rankBound(long[] counts, double quantile, int resamples) {
+        long seen = 0;
+        for (int position = 0; position < counts.length; position++) {
+            seen += counts[position];
+            if (seen > quantile * resamples)
+                return position;
+        }
+        return counts.length - 1;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java Bootstrap <results> [options]");
+            System.out.println("where <results> = results file with one line per trial of");
+            System.out.println("                  each pairing, as written by League -trials.");
+            System.out.println("Options:");
+            System.out.println("      -resamples <r> = number of resamples (default 10000).");
+            System.out.println("      -seed <seed>   = seed of the resamples (default random).");
+            System.out.println("      -threads <t>   = parallelism (default number of cores).");
+            System.out.println("Example:");
+            System.out.println("java Bootstrap results.txt -resamples 20000 -seed 1");
+            System.exit(-1);
+        }
+        
+        int resamples = 10000;
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-resamples"))
+                resamples = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        
+        TreeSet<String> names = new TreeSet<String>();
+        List<MatchResult> results = new ArrayList<MatchResult>();
+        for (String line : Files.readAllLines(Paths.get(args[0]))) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length < 6 || !tokens[2].equals("Ties"))
+                continue;
+            long[] score = { Long.parseLong(tokens[1]),
+                             Long.parseLong(tokens[3]),
+                             Long.parseLong(tokens[5]) };
+            results.add(new MatchResult(tokens[0], tokens[4], 0, score, 0));
+            names.add(tokens[0]);
+            names.add(tokens[4]);
+        }
+        Bootstrap bootstrap =
+            new Bootstrap(new ArrayList<String>(names), results);
+        if (bootstrap.getMinTrials() < 2) {
+            System.out.println("Error: every pairing needs at least two " +
+                               "trials to resample; run League with -trials.");
+            System.exit(-1);
+        }
+        bootstrap.run(resamples, seed, threads);
+    }
+    
+}
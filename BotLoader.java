@@ -0,0 +1,316 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/** Loads bots from a directory, each in its own class loader, and swaps in
+  * a new version of a bot whenever its file in the directory changes.
+  * 
+  * The directory may hold a bot's source, X.java, which is compiled in
+  * process with javax.tools, or its compiled X.class. Each version of a bot
+  * gets a class loader of its own that defines the bot's class and its
+  * nested classes and takes everything else, such as RoShamBot and Action,
+  * from the class path. So each version has its own static state, and two
+  * versions never share it. Bots with no file in the directory come from
+  * the class path as usual.
+  * 
+  * A match creates its bots when it starts, so a new version is used by the
+  * matches that start after it is loaded, while matches already under way
+  * finish with the version they started with. A version that does not
+  * compile, or whose constructor throws, is reported and the previous one
+  * is kept.
+  * 
+  * Compiled versions are written under a temporary directory, which is
+  * deleted when the loader is closed, or when the JVM exits if it never is.
+  */
+public class BotLoader implements Closeable {
+    
+    /** How long the directory must be quiet before changes are loaded, as
+      * editors often write a file in several steps.
+      */
+    private static final long SETTLE_MILLIS = 200;
+    
+    private Path directory;
+    private Path output; // where each compiled version is written
+    private Map<String, Version> versions;
+    private WatchService watcher;
+    private Thread cleanup; // deletes the output if the loader is not closed
+    
+    /** One loaded version of a bot. */
+    private static class Version {
+        final int number;
+        final Supplier<RoShamBot> factory;
+        
+        Version(int number, Supplier<RoShamBot> factory) {
+            this.number = number;
+            this.factory = factory;
+        }
+    }
+    
+    /** A class loader that defines one bot's classes itself, rather than
+      * asking its parent first, and leaves every other class to its parent.
+      */
+    private static class Isolated extends ClassLoader {
+        private final Map<String, byte[]> classes;
+        
+        Isolated(Map<String, byte[]> classes) {
+            super(BotLoader.class.getClassLoader());
+            this.classes = classes;
+        }
+        
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+            throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> cls = findLoadedClass(name);
+                if (cls == null) {
+                    byte[] bytes = this.classes.get(name);
+                    if (bytes == null)
+                        return super.loadClass(name, resolve);
+                    cls = defineClass(name, bytes, 0, bytes.length);
+                }
+                if (resolve)
+                    resolveClass(cls);
+                return cls;
+            }
+        }
+    }
+    
+    /** Creates a loader for the bots in a directory. Nothing is loaded until
+      * a bot is first asked for.
+      * 
+      * @param directory the directory of bot sources or class files.
+      * @throws IOException if the directory for compiled versions cannot be
+      *         created.
+      */
+    public BotLoader(Path directory) throws IOException {
+        this.directory = directory;
+        this.output = Files.createTempDirectory("bots");
+        this.versions = new ConcurrentHashMap<String, Version>();
+        this.cleanup = new Thread(this::deleteOutput, "bot-loader-cleanup");
+        Runtime.getRuntime().addShutdownHook(this.cleanup);
+    }
+    
+    /** Creates a new instance of the current version of a bot.
+      * 
+      * @param name the bot's class name.
+      * @throws IllegalArgumentException if there is no such bot or it cannot
+      *         be created.
+      */
+    public RoShamBot create(String name) {
+        Version version = this.versions.get(name);
+        if (version == null) {
+            if (!hasFile(name))
+                return BotRegistry.getDefault().create(name);
+            synchronized (this) {
+                version = this.versions.get(name);
+                if (version == null) {
+                    String problem = load(name);
+                    version = this.versions.get(name);
+                    if (version == null)
+                        throw new IllegalArgumentException(name + ": " +
+                                                           problem);
+                }
+            }
+        }
+        return version.factory.get();
+    }
+    
+    /** Returns the number of the version of a bot that new matches use,
+      * counting from 1, or 0 if the bot does not come from the directory.
+      */
+    public int getVersion(String name) {
+        Version version = this.versions.get(name);
+        return (version == null) ? 0 : version.number;
+    }
+    
+    private boolean hasFile(String name) {
+        return Files.exists(this.directory.resolve(name + ".java")) ||
+            Files.exists(this.directory.resolve(name + ".class"));
+    }
+    
+    /** Loads the bot's file from the directory as its next version.
+      * 
+      * @return null if the new version is in use, or why it could not be
+      *         loaded.
+      */
+    synchronized String load(String name) {
+        Version current = this.versions.get(name);
+        int number = (current == null) ? 1 : current.number + 1;
+        Path classes = this.directory;
+        try {
+            if (Files.exists(this.directory.resolve(name + ".java"))) {
+                classes = Files.createTempDirectory(this.output, name + "-");
+                String errors = compile(this.directory.resolve(name + ".java"),
+                                        classes);
+                if (errors != null)
+                    return "does not compile:\n" + errors;
+            }
+            
+            Map<String, byte[]> bytes = new HashMap<String, byte[]>();
+            try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(classes, name + "*.class")) {
+                for (Path f : files) {
+                    String file = f.getFileName().toString();
+                    String cls = file.substring(0, file.length() - 6);
+                    if (cls.equals(name) || cls.startsWith(name + "$"))
+                        bytes.put(cls, Files.readAllBytes(f));
+                }
+            }
+            if (!bytes.containsKey(name))
+                return "no class file";
+            
+            Class<?> cls = new Isolated(bytes).loadClass(name);
+            if (!RoShamBot.class.isAssignableFrom(cls))
+                return "does not implement RoShamBot";
+            Supplier<RoShamBot> factory = BotRegistry.factory(cls);
+            factory.get();
+            this.versions.put(name, new Version(number, factory));
+            return null;
+        }
+        catch (NoSuchMethodException e) {
+            return "no public no-argument constructor";
+        }
+        catch (IllegalAccessException e) {
+            return "class or constructor is not public";
+        }
+        catch (IOException | ClassNotFoundException | RuntimeException |
+               LinkageError | StackOverflowError e) {
+            return "could not be loaded: " + e;
+        }
+    }
+    
+    /** Compiles one source file against the class path.
+      * 
+      * @return null on success, or the compiler's messages.
+      */
+    private static String compile(Path source, Path classes) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            return "no Java compiler in this runtime; run with a JDK";
+        StringWriter messages = new StringWriter();
+        boolean ok = compiler.getTask(
+            messages, null, null,
+            List.of("-d", classes.toString(), "-implicit:none",
+                    "-cp", System.getProperty("java.class.path", ".")),
+            null,
+            compiler.getStandardFileManager(null, null, null)
+                .getJavaFileObjects(source.toFile())).call();
+        return ok ? null : messages.toString().trim();
+    }
+    
+    /** Watches the directory on a daemon thread and loads a new version of
+      * every bot already in use whose file changes.
+      * 
+      * @throws IOException if the directory cannot be watched.
+      */
+    public void watch() throws IOException {
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.directory.register(this.watcher,
+                                StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(this::watchLoop, "bot-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void watchLoop() {
+        Set<String> changed = new TreeSet<String>();
+        try {
+            while (true) {
+                WatchKey key = changed.isEmpty()
+                    ? this.watcher.take()
+                    : this.watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    for (String name : changed)
+                        reload(name);
+                    changed.clear();
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                        continue;
+                    String file = event.context().toString();
+                    int dot = file.lastIndexOf('.');
+                    if (dot < 0 || file.contains("$"))
+                        continue;
+                    String ext = file.substring(dot);
+                    if (ext.equals(".java") || ext.equals(".class"))
+                        changed.add(file.substring(0, dot));
+                }
+                key.reset();
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed; stop watching.
+        }
+    }
+    
+    /** Loads a changed bot if it is in use, and reports the outcome. */
+    private void reload(String name) {
+        if (!this.versions.containsKey(name))
+            return;
+        String problem = load(name);
+        if (problem == null)
+            System.err.println("BotLoader: " + name + " reloaded as version " +
+                               getVersion(name) + ".");
+        else
+            System.err.println("BotLoader: the new " + name + " " + problem +
+                               "\nBotLoader: keeping version " +
+                               getVersion(name) + " of " + name + ".");
+    }
+    
+    /** Stops watching and deletes the compiled versions. Bots already
+      * created keep working, as their classes are loaded.
+      */
+    public void close() throws IOException {
+        if (this.watcher != null)
+            this.watcher.close();
+        deleteOutput();
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.cleanup);
+        }
+        catch (IllegalStateException e) {
+            // Already shutting down.
+        }
+    }
+    
+    /** Deletes the output directory and everything in it, deepest first. */
+    private void deleteOutput() {
+        try (Stream<Path> paths = Files.walk(this.output)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                }
+                catch (IOException e) {
+                    // Leave it; it is only a temporary file.
+                }
+            });
+        }
+        catch (IOException | UncheckedIOException e) {
+            // Already deleted, or nothing more can be done.
+        }
+    }
+    
+}
@@ -0,0 +1,269 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/** Finds the RoShamBot implementations available to this JVM and keeps a
+  * cached factory for each one.
+  * 
+  * The default registry scans every directory and jar on the class path,
+  * plus any bots declared as RoShamBot services, once. Each bot's factory is
+  * a Supplier spun from its no-argument constructor with LambdaMetafactory,
+  * so creating a bot costs the same as calling new. Every bot is also built
+  * once during registration, so a bot that cannot be constructed is reported
+  * before any matches start rather than in the middle of a league.
+  */
+public class BotRegistry {
+    
+    private static BotRegistry defaultRegistry;
+    
+    private Map<String, Supplier<RoShamBot>> suppliers;
+    private Map<String, String> problems; // class name -> why it is unusable
+    
+    /** Creates an empty registry. */
+    public BotRegistry() {
+        this.suppliers = new ConcurrentHashMap<String, Supplier<RoShamBot>>();
+        this.problems = new ConcurrentHashMap<String, String>();
+    }
+    
+    /** Returns the registry of every bot on the class path, scanning the
+      * class path the first time it is called.
+      */
+    public static synchronized BotRegistry getDefault() {
+        if (defaultRegistry == null) {
+            BotRegistry registry = new BotRegistry();
+            registry.scanClassPath();
+            registry.loadServices();
+            defaultRegistry = registry;
+        }
+        return defaultRegistry;
+    }
+    
+    /** Lists the bots on the class path, and the bot classes that cannot be
+      * created.
+      */
+    public static void main(String[] args) {
+        BotRegistry registry = getDefault();
+        for (String name : registry.getNames())
+            System.out.println(name);
+        for (Map.Entry<String, String> problem :
+                 registry.getProblems().entrySet())
+            System.out.println("Unusable: " + problem.getKey() + ": " +
+                               problem.getValue());
+    }
+    
+    /** Returns the names of the bots that can be created, in order. */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(
+            new TreeSet<String>(this.suppliers.keySet()));
+    }
+    
+    /** Returns the bot classes that were found but cannot be created, each
+      * with the reason.
+      */
+    public Map<String, String> getProblems() {
+        return Collections.unmodifiableMap(
+            new TreeMap<String, String>(this.problems));
+    }
+    
+    /** Returns the factory for a bot.
+      * 
+      * @param name the bot's class name. A class that was not found by the
+      *        scan is looked up and registered on demand.
+      * @throws IllegalArgumentException if there is no such bot or it cannot
+      *         be created.
+      */
+    public Supplier<RoShamBot> get(String name) {
+        Supplier<RoShamBot> supplier = this.suppliers.get(name);
+        if (supplier != null)
+            return supplier;
+        
+        if (!this.problems.containsKey(name)) {
+            try {
+                register(Class.forName(name));
+            }
+            catch (ClassNotFoundException | LinkageError e) {
+                this.problems.put(name, "class not found");
+            }
+            supplier = this.suppliers.get(name);
+            if (supplier != null)
+                return supplier;
+        }
+        throw new IllegalArgumentException(name + ": " +
+                                           this.problems.get(name));
+    }
+    
+    /** Creates a new instance of a bot.
+      * 
+      * @param name the bot's class name.
+      * @throws IllegalArgumentException if there is no such bot or it cannot
+      *         be created.
+      */
+    public RoShamBot create(String name) {
+        return get(name).get();
+    }
+    
+    /** Adds a class to the registry if it is a bot. A bot that cannot be
+      * created is recorded in getProblems() instead.
+      * 
+      * @return true if the class was registered as a usable bot.
+      */
+    public boolean register(Class<?> cls) {
+        String name = cls.getName();
+        if (!RoShamBot.class.isAssignableFrom(cls)) {
+            this.problems.put(name, "does not implement RoShamBot");
+            return false;
+        }
+        if (cls.isInterface() || Modifier.isAbstract(cls.getModifiers()))
+            return false;
+        
+        try {
+            Supplier<RoShamBot> supplier = factory(cls);
+            supplier.get();
+            this.suppliers.put(name, supplier);
+            this.problems.remove(name);
+            return true;
+        }
+        catch (NoSuchMethodException e) {
+            this.problems.put(name, "no public no-argument constructor");
+        }
+        catch (IllegalAccessException e) {
+            this.problems.put(name, "class or constructor is not public");
+        }
+        catch (RuntimeException | LinkageError | StackOverflowError e) {
+            this.problems.put(name, "constructor threw " + e);
+        }
+        return false;
+    }
+    
+    /** Builds a Supplier that calls a class's no-argument constructor. */
+    @SuppressWarnings("unchecked")
+    static Supplier<RoShamBot> factory(Class<?> cls)
+        throws NoSuchMethodException, IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructor =
+            lookup.findConstructor(cls, MethodType.methodType(void.class));
+        // A lambda spun here names the bot class, which would resolve to the
+        // class path's copy rather than one from another class loader
+        if (cls.getClassLoader() != BotRegistry.class.getClassLoader())
+            return invoking(constructor);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                lookup, "get", MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class), constructor,
+                MethodType.methodType(cls));
+            return (Supplier<RoShamBot>)site.getTarget().invokeExact();
+        }
+        catch (Throwable t) {
+            // The lambda class cannot be spun. Fall back to invoking the
+            // constructor handle directly.
+            return invoking(constructor);
+        }
+    }
+    
+    /** Builds a Supplier that invokes a constructor handle. */
+    private static Supplier<RoShamBot> invoking(MethodHandle constructor) {
+        MethodHandle generic = constructor.asType(
+            MethodType.methodType(RoShamBot.class));
+        return () -> {
+            try {
+                return (RoShamBot)generic.invokeExact();
+            }
+            catch (RuntimeException | Error e) {
+                throw e;
+            }
+            catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+    
+    /** Registers every bot class found in the directories and jars on the
+      * class path.
+      */
+    void scanClassPath() {
+        String classPath = System.getProperty("java.class.path", ".");
+        for (String entry : classPath.split(File.pathSeparator)) {
+            Path path = Paths.get(entry.isEmpty() ? "." : entry);
+            try {
+                if (Files.isDirectory(path))
+                    scanDirectory(path);
+                else if (entry.endsWith(".jar") && Files.isRegularFile(path))
+                    scanJar(path);
+            }
+            catch (IOException e) {
+                // An unreadable class path entry cannot contain usable bots.
+            }
+        }
+    }
+    
+    private void scanDirectory(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(f -> f.toString().endsWith(".class"))
+                 .forEach(f -> consider(root.relativize(f).toString()));
+        }
+    }
+    
+    private void scanJar(Path jar) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            Enumeration<JarEntry> entries = file.entries();
+            while (entries.hasMoreElements()) {
+                String entry = entries.nextElement().getName();
+                if (entry.endsWith(".class"))
+                    consider(entry);
+            }
+        }
+    }
+    
+    /** Registers the class stored at the given class path location if it is
+      * a top-level bot class.
+      */
+    private void consider(String classFile) {
+        String name = classFile.substring(0, classFile.length() - 6)
+            .replace('/', '.').replace(File.separatorChar, '.');
+        if (name.contains("$") || name.endsWith("module-info")
+                || name.endsWith("package-info"))
+            return;
+        try {
+            Class<?> cls = Class.forName(name, false,
+                                         BotRegistry.class.getClassLoader());
+            if (RoShamBot.class.isAssignableFrom(cls))
+                register(cls);
+        }
+        catch (ClassNotFoundException | LinkageError e) {
+            // Not loadable from this class path; not a usable bot.
+        }
+    }
+    
+    /** Registers the bots declared in META-INF/services/RoShamBot. */
+    void loadServices() {
+        try {
+            ServiceLoader.load(RoShamBot.class).stream()
+                .forEach(provider -> register(provider.type()));
+        }
+        catch (ServiceConfigurationError e) {
+            // A broken service declaration leaves the scanned bots usable.
+        }
+    }
+    
+}
@@ -0,0 +1,404 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Program that plays a league across several worker JVMs instead of in
+  * one, so that no single heap or garbage collector limits how many long
+  * matches run at once.
+  * 
+  * The coordinator builds the same schedule as League, listens on a port
+  * and starts the requested number of Worker processes on this machine,
+  * which connect back to it over loopback. Workers started by hand on
+  * other machines may connect as well. Each worker is kept supplied with
+  * as many matches as it has threads, and the results are collected as
+  * they arrive. When a worker dies, the matches it had not finished go
+  * back in the queue for the others; a match that has been lost with
+  * several workers is reported as failed rather than tried forever. With
+  * the same seed the results are identical to League's.
+  */
+public class Coordinator {
+    
+    /** Workers a match may be lost with before it is given up on. */
+    private static final int MAX_ATTEMPTS = 3;
+    
+    /** How long an idle connection waits for work before looking again. */
+    private static final long POLL_MILLIS = 100;
+    
+    /** How long a local worker has to exit once it is told to quit. */
+    private static final long QUIT_SECONDS = 5;
+    
+    private List<Match> matches;
+    private long stopInterval;
+    private long deadlineNanos;
+    private MatchResult[] results;
+    private int[] attempts;
+    private BlockingQueue<Integer> pending;
+    private CountDownLatch finished;
+    private AtomicInteger connected;
+    private volatile boolean done;
+    
+    /** Sets up a coordinator for a schedule of matches.
+      * 
+      * @param matches the matches to play.
+      * @param stopInterval the early-stop check interval, or 0.
+      * @param deadlineNanos the per-move deadline, or 0.
+      */
+    public Coordinator(List<Match> matches, long stopInterval,
+                       long deadlineNanos) {
+        this.matches = matches;
+        this.stopInterval = stopInterval;
+        this.deadlineNanos = deadlineNanos;
+        this.results = new MatchResult[matches.size()];
+        this.attempts = new int[matches.size()];
+        this.pending = new LinkedBlockingQueue<Integer>();
+        for (int i = 0; i < matches.size(); i++)
+            this.pending.add(i);
+        this.finished = new CountDownLatch(matches.size());
+        this.connected = new AtomicInteger();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java Coordinator <n> <roster> [options]");
+            System.out.println("where <n>      = number of rounds per match.");
+            System.out.println("      <roster> = file listing one bot class name per line,");
+            System.out.println("                 or a results file to take the bots from.");
+            System.out.println("Options:");
+            System.out.println("      -workers <w>   = worker JVMs to start on this machine (default 2).");
+            System.out.println("      -threads <t>   = parallel matches in each of them (default");
+            System.out.println("                       number of cores / w).");
+            System.out.println("      -heap <size>   = maximum heap of each worker, as for -Xmx.");
+            System.out.println("      -port <p>      = port to listen on (default any free port).");
+            System.out.println("      -bind <addr>   = address to listen on (default loopback); use");
+            System.out.println("                       0.0.0.0 to accept workers from other machines.");
+            System.out.println("      -out <file>    = results file to write (default results.txt).");
+            System.out.println("      -seed <seed>   = league seed (default random).");
+            System.out.println("      -stop <k>      = end each match early once its result is");
+            System.out.println("                       decided, checking every k rounds.");
+            System.out.println("      -deadline <ms> = time allowed per move; a bot that misses it");
+            System.out.println("                       10 times forfeits the match.");
+            System.out.println("Example:");
+            System.out.println("java Coordinator 100000 roster.txt -workers 4 -seed 1");
+            System.exit(-1);
+        }
+        
+        long numRounds = 0;
+        try {
+            numRounds = Long.parseLong(args[0]);
+        }
+        catch (NumberFormatException e) {
+            System.out.println("Error: invalid value for num rounds.");
+            System.exit(-1);
+        }
+        List<String> roster = League.usable(League.readRoster(Paths.get(args[1])));
+        int workers = 2;
+        int threads = 0;
+        String heap = null;
+        int port = 0;
+        InetAddress bind = InetAddress.getLoopbackAddress();
+        Path out = Paths.get("results.txt");
+        long seed = new SplittableRandom().nextLong();
+        int stop = 0;
+        long deadlineNanos = 0;
+        for (int i = 2; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            String option = args[i];
+            try {
+                if (args[i].equals("-workers"))
+                    workers = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-threads"))
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-heap"))
+                    heap = args[++i];
+                else if (args[i].equals("-port"))
+                    port = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-bind"))
+                    bind = InetAddress.getByName(args[++i]);
+                else if (args[i].equals("-out"))
+                    out = Paths.get(args[++i]);
+                else if (args[i].equals("-seed"))
+                    seed = Long.parseLong(args[++i]);
+                else if (args[i].equals("-stop"))
+                    stop = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-deadline"))
+                    deadlineNanos = (long)(Double.parseDouble(args[++i]) * 1e6);
+                else {
+                    System.out.println("Error: unknown option " + option + ".");
+                    System.exit(-1);
+                }
+            }
+            catch (IllegalArgumentException | UnknownHostException e) {
+                System.out.println("Error: invalid value for " +
+                                   option.substring(1) + ".");
+                System.exit(-1);
+            }
+        }
+        if (port < 0 || port > 0xFFFF) {
+            System.out.println("Error: invalid value for port.");
+            System.exit(-1);
+        }
+        if (stop < 0) {
+            System.out.println("Error: invalid value for stop.");
+            System.exit(-1);
+        }
+        if (threads <= 0)
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() /
+                                  Math.max(1, workers));
+        
+        List<Match> matches = League.pairings(roster, numRounds, seed);
+        Coordinator coordinator = new Coordinator(matches, stop, deadlineNanos);
+        long start = System.nanoTime();
+        List<MatchResult> results;
+        try (ServerSocket server = new ServerSocket(port, 50, bind)) {
+            System.out.println("Coordinator listening on " +
+                               server.getInetAddress().getHostAddress() + ":" +
+                               server.getLocalPort());
+            Thread acceptor = new Thread(() -> coordinator.accept(server),
+                                         "coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            
+            List<Process> local = new ArrayList<Process>();
+            for (int w = 0; w < workers; w++)
+                local.add(startWorker(bind, server.getLocalPort(), threads,
+                                      heap));
+            results = coordinator.await(local);
+            for (Process p : local)
+                if (!p.waitFor(QUIT_SECONDS, TimeUnit.SECONDS))
+                    p.destroy();
+        }
+        if (results == null) {
+            System.out.println("Error: every worker has died with " +
+                               coordinator.finished.getCount() +
+                               " matches left to play.");
+            System.exit(-1);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        try (PrintWriter writer =
+                 new PrintWriter(Files.newBufferedWriter(out))) {
+            for (MatchResult r : results) {
+                if (r.isFailed())
+                    System.err.println("Error: " + r);
+                else
+                    writer.println(r.toResultLine());
+            }
+        }
+        
+        long roundsPlayed = 0;
+        for (MatchResult r : results)
+            roundsPlayed += r.getRounds();
+        System.out.printf("%d matches (%d rounds) in %.1f s on %d workers of " +
+                          "%d threads, seed %d%n", results.size(), roundsPlayed,
+                          seconds, workers, threads, seed);
+        League.printTable(roster, results);
+    }
+    
+    /** Starts a worker JVM on this machine with this JVM's class path. */
+    private static Process startWorker(InetAddress bind, int port, int threads,
+                                       String heap) throws IOException {
+        InetAddress host = bind.isAnyLocalAddress()
+            ? InetAddress.getLoopbackAddress() : bind;
+        List<String> command = new ArrayList<String>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+                    .toString());
+        if (heap != null)
+            command.add("-Xmx" + heap);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("Worker");
+        command.add(host.getHostAddress());
+        command.add(Integer.toString(port));
+        command.add("-threads");
+        command.add(Integer.toString(threads));
+        return new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+    }
+    
+    /** Accepts workers until the league is over, serving each on its own
+      * thread.
+      */
+    private void accept(ServerSocket server) {
+        while (!this.done) {
+            try {
+                Socket socket = server.accept();
+                this.connected.incrementAndGet();
+                Thread t = new Thread(() -> serve(socket), "coordinator-" +
+                                      socket.getRemoteSocketAddress());
+                t.setDaemon(true);
+                t.start();
+            }
+            catch (IOException e) {
+                return; // the server socket was closed
+            }
+        }
+    }
+    
+    /** Waits for every match to finish.
+      * 
+      * @param local the worker processes started on this machine.
+      * @return the results in schedule order, or null if every worker died
+      *         with matches still to play.
+      */
+    private List<MatchResult> await(List<Process> local)
+        throws InterruptedException {
+        while (!this.finished.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            // Workers on other machines may still come; local ones cannot
+            boolean alive = local.isEmpty() || this.connected.get() > 0;
+            for (Process p : local)
+                alive |= p.isAlive();
+            if (!alive) {
+                this.done = true;
+                return null;
+            }
+        }
+        this.done = true;
+        List<MatchResult> list = new ArrayList<MatchResult>();
+        for (MatchResult r : this.results)
+            list.add(r);
+        return list;
+    }
+    
+    /** Feeds one worker matches and collects its results until the league
+      * is over or the worker goes away, in which case its unfinished
+      * matches are put back in the queue.
+      */
+    private void serve(Socket socket) {
+        Set<Integer> assigned = new HashSet<Integer>();
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                s.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(s.getOutputStream(), true,
+                                              StandardCharsets.UTF_8);
+            String hello = in.readLine();
+            if (hello == null || !hello.startsWith("WORKER "))
+                return;
+            int capacity = Math.max(1, Integer.parseInt(hello.substring(7)));
+            
+            while (!this.done) {
+                Integer next;
+                while (assigned.size() < capacity &&
+                       (next = this.pending.poll()) != null) {
+                    assigned.add(next);
+                    out.println(playMessage(next));
+                }
+                if (assigned.isEmpty()) {
+                    next = this.pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        assigned.add(next);
+                        out.println(playMessage(next));
+                    }
+                    continue;
+                }
+                String line = in.readLine();
+                if (line == null)
+                    break;
+                int id = complete(line);
+                if (id >= 0)
+                    assigned.remove(id);
+            }
+            out.println("QUIT");
+        }
+        catch (IOException | RuntimeException | InterruptedException e) {
+            System.err.println("Coordinator: lost worker " +
+                               socket.getRemoteSocketAddress() + ": " + e);
+        }
+        finally {
+            this.connected.decrementAndGet();
+            if (!assigned.isEmpty())
+                System.err.println("Coordinator: worker " +
+                                   socket.getRemoteSocketAddress() +
+                                   " went away; returning " + assigned.size() +
+                                   " matches to the queue.");
+            for (int id : assigned)
+                requeue(id);
+        }
+    }
+    
+    private String playMessage(int id) {
+        Match m = this.matches.get(id);
+        return "PLAY " + id + " " + m.getPlayer1() + " " + m.getPlayer2() +
+            " " + m.getRounds() + " " + m.getSeed() + " " + this.stopInterval +
+            " " + this.deadlineNanos;
+    }
+    
+    /** Records the result in a worker's reply.
+      * 
+      * @return the id of the match the reply is for, or -1 if it is not a
+      *         result.
+      */
+    private int complete(String line) {
+        String[] tokens = line.split(" ", 3);
+        if (tokens.length < 3)
+            return -1;
+        int id = Integer.parseInt(tokens[1]);
+        Match m = this.matches.get(id);
+        MatchResult r;
+        if (tokens[0].equals("DONE")) {
+            String[] numbers = tokens[2].split(" ");
+            long[] score = { Long.parseLong(numbers[1]),
+                             Long.parseLong(numbers[2]),
+                             Long.parseLong(numbers[3]) };
+            r = new MatchResult(m.getPlayer1(), m.getPlayer2(), m.getSeed(),
+                                score, Long.parseLong(numbers[0]));
+        }
+        else if (tokens[0].equals("FAILED"))
+            r = new MatchResult(m.getPlayer1(), m.getPlayer2(), m.getSeed(),
+                                tokens[2]);
+        else
+            return -1;
+        finish(id, r);
+        return id;
+    }
+    
+    /** Puts a match a worker died with back in the queue, unless it has
+      * now been lost too many times.
+      */
+    private void requeue(int id) {
+        synchronized (this.attempts) {
+            if (this.results[id] != null)
+                return;
+            if (++this.attempts[id] < MAX_ATTEMPTS) {
+                this.pending.add(id);
+                return;
+            }
+        }
+        Match m = this.matches.get(id);
+        finish(id, new MatchResult(m.getPlayer1(), m.getPlayer2(), m.getSeed(),
+                                   "lost with " + MAX_ATTEMPTS + " workers"));
+    }
+    
+    private void finish(int id, MatchResult r) {
+        synchronized (this.attempts) {
+            if (this.results[id] != null)
+                return;
+            this.results[id] = r;
+        }
+        this.finished.countDown();
+    }
+    
+}
@@ -0,0 +1,129 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/** Wraps a bot so that each of its moves must be decided within a time
+  * limit.
+  * 
+  * The wrapped bot runs on a thread of its own. If it has not answered by
+  * the deadline, the fallback bot's move is played instead and the miss is
+  * counted. The late call is left to finish in the background, and the
+  * bot's next call queues behind it, so the bot still sees every one of its
+  * opponent's moves in order.
+  * 
+  * The bot is never told that its late move was not played, as a RoShamBot
+  * only learns its opponent's moves. A bot that remembers its own moves
+  * therefore believes it played the late move on a missed round, and from
+  * then on its record of the match differs from the one the opponent and
+  * the Arbiter see. Likewise the fallback bot is only called on missed
+  * rounds, so it sees just the opponent moves that preceded them. Results
+  * of matches with many misses should be read with this in mind.
+  * 
+  * Closing interrupts a move still running, but Java cannot stop a thread
+  * that ignores interrupts. A bot stuck in such a move keeps its thread,
+  * and the core it spins on, until the JVM exits, so each forfeit by a bot
+  * like that costs a league a little more CPU. getLeakedThreads() counts
+  * the threads still running after their bot was closed.
+  */
+public class DeadlineBot implements RoShamBot {
+    
+    /** Move threads of closed bots that had not yet stopped. */
+    private static final Set<ExecutorService> CLOSED_RUNNING =
+        ConcurrentHashMap.newKeySet();
+    
+    private RoShamBot bot;
+    private RoShamBot fallback;
+    private long timeoutNanos;
+    private ExecutorService thread;
+    private int violations;
+    private volatile long threadId;
+    
+    /** Wraps a bot.
+      * 
+      * @param bot the bot to put on a deadline.
+      * @param fallback the bot whose move is played when the deadline is
+      *        missed.
+      * @param timeoutNanos the time allowed for each move.
+      */
+    public DeadlineBot(RoShamBot bot, RoShamBot fallback, long timeoutNanos) {
+        this.bot = bot;
+        this.fallback = fallback;
+        this.timeoutNanos = timeoutNanos;
+        this.thread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "move-" + bot.getClass().getName());
+            t.setDaemon(true);
+            this.threadId = t.getId();
+            return t;
+        });
+        // Start the thread now, so its id is known before the first move.
+        try {
+            this.thread.submit(() -> { }).get();
+        }
+        catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /** Returns the wrapped bot's move, or the fallback's move if the wrapped
+      * bot misses the deadline.
+      * 
+      * @param lastOpponentMove the action that was played by the opponent on
+      *        the last round.
+      * @return the next action to play.
+      */
+    public Action getNextMove(Action lastOpponentMove) {
+        Future<Action> move =
+            this.thread.submit(() -> this.bot.getNextMove(lastOpponentMove));
+        try {
+            return move.get(this.timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            this.violations++;
+            return this.fallback.getNextMove(lastOpponentMove);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new IllegalStateException(cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for " +
+                                            this.bot.getClass().getName());
+        }
+    }
+    
+    /** Returns the number of moves that missed the deadline. */
+    public int getViolations() {
+        return this.violations;
+    }
+    
+    /** Returns the id of the thread the wrapped bot's moves run on. */
+    public long getThreadId() {
+        return this.threadId;
+    }
+    
+    /** Stops the bot's thread. A move still running is interrupted. */
+    public void close() {
+        this.thread.shutdownNow();
+        if (!this.thread.isTerminated())
+            CLOSED_RUNNING.add(this.thread);
+    }
+    
+    /** Returns the number of move threads, over every DeadlineBot in this
+      * JVM, that are still running although their bot has been closed.
+      */
+    public static int getLeakedThreads() {
+        CLOSED_RUNNING.removeIf(ExecutorService::isTerminated);
+        return CLOSED_RUNNING.size();
+    }
+    
+}
@@ -1,22 +1,46 @@
 import java.util.*;
-public class DownSejiroKriegBot implements RoShamBot {
+public class DownSejiroKriegBot implements RoShamBot, Randomized, Snapshottable {
 
-    private ArrayList<Integer> theirMoves = new ArrayList<Integer>();
-    private ArrayList<Integer> ourMoves = new ArrayList<Integer>();
+    private MoveHistory theirMoves = new MoveHistory();
+    private MoveHistory ourMoves = new MoveHistory();
     private int[] ourRock = new int[3];
     private int[] ourPaper = new int[3];
     private int[] ourScissors = new int[3];
     private int[][][] twoMove = new int[3][3][3];
-    private ArrayList<Integer> oneList = new ArrayList<Integer>();
-    private ArrayList<Integer> twoList = new ArrayList<Integer>();
-    private ArrayList<Integer> threeList = new ArrayList<Integer>();
-    private ArrayList<Integer> fiveList = new ArrayList<Integer>();
-    private ArrayList<Integer> tenList = new ArrayList<Integer>();
+    private MoveHistory oneList = new MoveHistory();
+    private MoveHistory twoList = new MoveHistory();
+    private MoveHistory threeList = new MoveHistory();
+    private MoveHistory fiveList = new MoveHistory();
+    private MoveHistory tenList = new MoveHistory();
     private double[] effective = new double[5]; 
+    private SplittableRandom random = new SplittableRandom();
+    public void setRandom(SplittableRandom random) {
+	this.random = random;
+    }
+    public DownSejiroKriegBot copy() {
+	DownSejiroKriegBot copy = new DownSejiroKriegBot();
+	copy.theirMoves = theirMoves.copy();
+	copy.ourMoves = ourMoves.copy();
+	copy.ourRock = ourRock.clone();
+	copy.ourPaper = ourPaper.clone();
+	copy.ourScissors = ourScissors.clone();
+	for(int i = 0; i < 3; i++) {
+	    for(int j = 0; j < 3; j++) {
+		copy.twoMove[i][j] = twoMove[i][j].clone();
+	    }
+	}
+	copy.oneList = oneList.copy();
+	copy.twoList = twoList.copy();
+	copy.threeList = threeList.copy();
+	copy.fiveList = fiveList.copy();
+	copy.tenList = tenList.copy();
+	copy.effective = effective.clone();
+	return copy;
+    }
     public Action getNextMove(Action lastOpponentMove) {
 	int gameSize = ourMoves.size();
 	collectStats(gameSize,lastOpponentMove);
-	double fork = Math.random();
+	double fork = random.nextDouble();
 	int move = 0;
 	int move1 = 0;
 
@@ -36,7 +60,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	}
 	if(gameSize >= 21) updatePrediction();
 	if(fork <= .4 || gameSize <= 500) {
-	double coinFlip = Math.random();
+	double coinFlip = random.nextDouble();
 	if(coinFlip < 0.05 || gameSize < 20) move = move1;
 	else if(coinFlip >= 0.05 && coinFlip < 0.1) move = moves[0];
 	else if(coinFlip >= 0.1 && coinFlip < 0.2) move = moves[1];
@@ -181,7 +205,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[0][0][0] + twoMove[0][0][1] + twoMove[0][0][2];
 	    double a = (double)twoMove[0][0][0] / (double)total;
 	    double b = (double)twoMove[0][0][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -195,7 +219,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[0][1][0] + twoMove[0][1][1] + twoMove[0][1][2];
 	    double a = (double)twoMove[0][1][0] / (double)total;
 	    double b = (double)twoMove[0][1][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -209,7 +233,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[0][2][0] + twoMove[0][2][1] + twoMove[0][2][2];
 	    double a = (double)twoMove[0][2][0] / (double)total;
 	    double b = (double)twoMove[0][2][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -223,7 +247,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[1][0][0] + twoMove[1][0][1] + twoMove[1][0][2];
 	    double a = (double)twoMove[1][0][0] / (double)total;
 	    double b = (double)twoMove[1][0][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -237,7 +261,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[1][1][0] + twoMove[1][1][1] + twoMove[1][1][2];
 	    double a = (double)twoMove[1][1][0] / (double)total;
 	    double b = (double)twoMove[1][1][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -251,7 +275,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[1][2][0] + twoMove[1][2][1] + twoMove[1][2][2];
 	    double a = (double)twoMove[1][2][0] / (double)total;
 	    double b = (double)twoMove[1][2][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -265,7 +289,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[2][0][0] + twoMove[2][0][1] + twoMove[2][0][2];
 	    double a = (double)twoMove[2][0][0] / (double)total;
 	    double b = (double)twoMove[2][0][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -279,7 +303,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[2][1][0] + twoMove[2][1][1] + twoMove[2][1][2];
 	    double a = (double)twoMove[2][1][0] / (double)total;
 	    double b = (double)twoMove[2][1][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -294,7 +318,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    int total = twoMove[2][2][0] + twoMove[2][2][1] + twoMove[2][2][2];
 	    double a = (double)twoMove[2][2][0] / (double)total;
 	    double b = (double)twoMove[2][2][1] / (double)total + a;
-	    double coinFlip = Math.random();
+	    double coinFlip = random.nextDouble();
 	    if(coinFlip < a) {
 		return 1;
 	    }
@@ -311,7 +335,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 		double a = (double)ourRock[0] / (double)total;
 		double b = (double)ourRock[1] / (double)total + a;
 		
-		double coinFlip = Math.random();
+		double coinFlip = random.nextDouble();
 		if(coinFlip < a) {
 		    return 1;
 		}
@@ -326,7 +350,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 		double a = (double)ourPaper[0] / (double)total;
 		double b = (double)ourPaper[1] / (double)total + a;
 		
-		double coinFlip = Math.random();
+		double coinFlip = random.nextDouble();
 		if(coinFlip < a) {
 		    return 1;
 		}
@@ -341,7 +365,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 		double a = (double)ourRock[0] / (double)total;
 		double b = (double)ourRock[1] / (double)total + a;
 		
-		double coinFlip = Math.random();
+		double coinFlip = random.nextDouble();
 		if(coinFlip < a) {
 		    return 1;
 		}
@@ -352,7 +376,7 @@ public class DownSejiroKriegBot implements RoShamBot {
 	    }
     }
     private int randChoice() {
-	double coinFlip = Math.random();
+	double coinFlip = random.nextDouble();
 	if(coinFlip < 1.0/3.0) return 0;
 	else if(coinFlip < 2.0 / 3.0) return 1;
 	return 2;
@@ -0,0 +1,106 @@
+/** Rule for ending a match as soon as its result is statistically decided.
+  * 
+  * Each round is scored +1 for a player 1 win, 0 for a tie and -1 for a
+  * player 2 win. Every checkInterval rounds the rule forms a confidence
+  * interval for the mean score per round, using the normal approximation.
+  * The match is decided once the interval excludes zero (one bot is
+  * genuinely ahead) or lies entirely within +/- drawTolerance (the bots are
+  * genuinely even, as in 10,000 straight ties). Because the interval is
+  * checked repeatedly, the error rate is split evenly across all the checks
+  * a full-length match could make.
+  */
+public class EarlyStop {
+    
+    private int checkInterval;
+    private double alpha;
+    private double drawTolerance;
+    private long minRounds;
+    
+    /** Creates a rule with a 1% error rate, a draw tolerance of 0.01 per
+      * round and no decision before the first check.
+      * 
+      * @param checkInterval the number of rounds between checks.
+      */
+    public EarlyStop(int checkInterval) {
+        this(checkInterval, 0.01, 0.01, checkInterval);
+    }
+    
+    /** Creates a rule.
+      * 
+      * @param checkInterval the number of rounds between checks.
+      * @param alpha the chance of a wrong decision over a whole match.
+      * @param drawTolerance the mean score per round within which a match
+      *        counts as drawn.
+      * @param minRounds the fewest rounds to play before deciding.
+      */
+    public EarlyStop(int checkInterval, double alpha, double drawTolerance,
+                     long minRounds) {
+        if (checkInterval <= 0)
+            throw new IllegalArgumentException("checkInterval must be positive");
+        this.checkInterval = checkInterval;
+        this.alpha = alpha;
+        this.drawTolerance = drawTolerance;
+        this.minRounds = minRounds;
+    }
+    
+    public int getCheckInterval() {
+        return this.checkInterval;
+    }
+    
+    /** Returns true if a match with the given score is decided.
+      * 
+      * @param score wins for player 1, ties and wins for player 2.
+      * @param maxRounds the full length of the match.
+      */
+    public boolean isDecided(long[] score, long maxRounds) {
+        long n = score[0] + score[1] + score[2];
+        if (n < this.minRounds || n == 0)
+            return false;
+        
+        double mean = (double)(score[0] - score[2]) / n;
+        double meanSquare = (double)(score[0] + score[2]) / n;
+        double variance = Math.max(0, meanSquare - mean * mean);
+        
+        long checks = Math.max(1, (maxRounds + this.checkInterval - 1)
+                                   / this.checkInterval);
+        double z = inverseNormal(1 - this.alpha / (2.0 * checks));
+        double halfWidth = z * Math.sqrt(variance / n);
+        
+        return Math.abs(mean) > halfWidth
+            || Math.abs(mean) + halfWidth < this.drawTolerance;
+    }
+    
+    /** Returns the p-th quantile of the standard normal distribution, using
+      * Acklam's rational approximation (relative error below 1.2e-9).
+      */
+    static double inverseNormal(double p) {
+        final double[] a = { -3.969683028665376e+01, 2.209460984245205e+02,
+                             -2.759285104469687e+02, 1.383577518672690e+02,
+                             -3.066479806614716e+01, 2.506628277459239e+00 };
+        final double[] b = { -5.447609879822406e+01, 1.615858368580409e+02,
+                             -1.556989798598866e+02, 6.680131188771972e+01,
+                             -1.328068155288572e+01 };
+        final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01,
+                             -2.400758277161838e+00, -2.549732539343734e+00,
+                             4.374664141464968e+00, 2.938163982698783e+00 };
+        final double[] d = { 7.784695709041462e-03, 3.224671290700398e-01,
+                             2.445134137142996e+00, 3.754408661907416e+00 };
+        
+        if (p <= 0)
+            return Double.NEGATIVE_INFINITY;
+        if (p >= 1)
+            return Double.POSITIVE_INFINITY;
+        if (p < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - 0.02425)
+            return -inverseNormal(1 - p);
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+            / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+    
+}
@@ -0,0 +1,220 @@
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** Elo ratings of bots, updated after every match as results come in.
+  * 
+  * Any number of threads may report results at once. Each bot's rating is
+  * guarded by one of a fixed set of striped locks, and a result locks only
+  * the stripes of its two bots, always in stripe order, so matches between
+  * different bots update in parallel. A snapshot takes every stripe in the
+  * same order, so it sees each reported match either fully applied or not at
+  * all.
+  * 
+  * A match counts as a win for the bot that won more rounds and a draw if
+  * both won the same number. Elo updates depend on the order results arrive
+  * in, so ratings from a parallel league can differ slightly between runs.
+  */
+public class EloRatings {
+    
+    private static final int STRIPES = 64;
+    
+    /** One bot's rating, guarded by its stripe's lock. */
+    private static class Rating {
+        final String name;
+        final int stripe;
+        double rating;
+        int wins;
+        int draws;
+        int losses;
+        
+        Rating(String name, int stripe, double rating) {
+            this.name = name;
+            this.stripe = stripe;
+            this.rating = rating;
+        }
+    }
+    
+    /** A bot's rating at the time of a snapshot. */
+    public static class Standing {
+        private final String name;
+        private final double rating;
+        private final int wins;
+        private final int draws;
+        private final int losses;
+        
+        Standing(Rating r) {
+            this.name = r.name;
+            this.rating = r.rating;
+            this.wins = r.wins;
+            this.draws = r.draws;
+            this.losses = r.losses;
+        }
+        
+        public String getName() {
+            return this.name;
+        }
+        
+        public double getRating() {
+            return this.rating;
+        }
+        
+        public int getWins() {
+            return this.wins;
+        }
+        
+        public int getDraws() {
+            return this.draws;
+        }
+        
+        public int getLosses() {
+            return this.losses;
+        }
+        
+        public int getMatches() {
+            return this.wins + this.draws + this.losses;
+        }
+    }
+    
+    private final ReentrantLock[] stripes;
+    private final ConcurrentHashMap<String, Rating> ratings;
+    private final double initial;
+    private final double k;
+    
+    /** Creates ratings that start at 1500 and move by at most 32 points a
+      * match.
+      */
+    public EloRatings() {
+        this(1500, 32);
+    }
+    
+    /** Creates ratings.
+      * 
+      * @param initial the rating of a bot before its first match.
+      * @param k the most a rating can change in one match.
+      */
+    public EloRatings(double initial, double k) {
+        this.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+            this.stripes[i] = new ReentrantLock();
+        this.ratings = new ConcurrentHashMap<String, Rating>();
+        this.initial = initial;
+        this.k = k;
+    }
+    
+    private Rating rating(String name) {
+        return this.ratings.computeIfAbsent(name, n -> {
+            int h = n.hashCode();
+            h ^= (h >>> 16);
+            return new Rating(n, h & (STRIPES - 1), this.initial);
+        });
+    }
+    
+    /** Updates both bots' ratings with the result of a match between them.
+      * Failed matches are ignored.
+      */
+    public void add(MatchResult r) {
+        if (r.isFailed())
+            return;
+        double score1 = (r.getWins1() > r.getWins2()) ? 1
+                      : (r.getWins1() < r.getWins2()) ? 0 : 0.5;
+        add(r.getPlayer1(), r.getPlayer2(), score1);
+    }
+    
+    /** Updates both bots' ratings with the result of a match between them.
+      * 
+      * @param player1 name of the first bot.
+      * @param player2 name of the second bot.
+      * @param score1 1 if player 1 won, 0.5 for a draw, 0 if it lost.
+      */
+    public void add(String player1, String player2, double score1) {
+        Rating r1 = rating(player1);
+        Rating r2 = rating(player2);
+        ReentrantLock first = this.stripes[Math.min(r1.stripe, r2.stripe)];
+        ReentrantLock second = this.stripes[Math.max(r1.stripe, r2.stripe)];
+        first.lock();
+        if (second != first)
+            second.lock();
+        try {
+            double expected1 = 1 / (1 + Math.pow(10, (r2.rating - r1.rating) / 400));
+            double change = this.k * (score1 - expected1);
+            r1.rating += change;
+            r2.rating -= change;
+            if (score1 > 0.5) {
+                r1.wins++;
+                r2.losses++;
+            }
+            else if (score1 < 0.5) {
+                r1.losses++;
+                r2.wins++;
+            }
+            else {
+                r1.draws++;
+                r2.draws++;
+            }
+        }
+        finally {
+            if (second != first)
+                second.unlock();
+            first.unlock();
+        }
+    }
+    
+    /** Returns every bot's rating, highest first, as of a single moment:
+      * no match is half applied.
+      */
+    public List<Standing> snapshot() {
+        List<Standing> standings = new ArrayList<Standing>();
+        for (ReentrantLock stripe : this.stripes)
+            stripe.lock();
+        try {
+            for (Rating r : this.ratings.values())
+                standings.add(new Standing(r));
+        }
+        finally {
+            for (int i = STRIPES - 1; i >= 0; i--)
+                this.stripes[i].unlock();
+        }
+        Collections.sort(standings,
+                         Comparator.comparingDouble(Standing::getRating).reversed());
+        return standings;
+    }
+    
+    /** Rates the bots in results files, taking the matches in file order. */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java EloRatings <results>...");
+            System.exit(-1);
+        }
+        EloRatings elo = new EloRatings();
+        for (String file : args) {
+            for (String line : Files.readAllLines(Paths.get(file))) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length < 6 || !tokens[2].equals("Ties"))
+                    continue;
+                long wins1 = Long.parseLong(tokens[1]);
+                long wins2 = Long.parseLong(tokens[5]);
+                elo.add(tokens[0], tokens[4], (wins1 > wins2) ? 1
+                                              : (wins1 < wins2) ? 0 : 0.5);
+            }
+        }
+        elo.printLeaderboard();
+    }
+    
+    /** Prints a snapshot of the ratings as a leaderboard. */
+    public void printLeaderboard() {
+        System.out.printf("%-4s %-24s %8s %6s %6s %6s%n", "Pos", "Bot",
+                          "Elo", "Won", "Drawn", "Lost");
+        int pos = 1;
+        for (Standing s : snapshot())
+            System.out.printf("%-4d %-24s %8.1f %6d %6d %6d%n", pos++,
+                              s.getName(), s.getRating(), s.getWins(),
+                              s.getDraws(), s.getLosses());
+    }
+    
+}
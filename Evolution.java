@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/** Program that evolves a population of bots with replicator dynamics.
+  * 
+  * Every bot starts with an equal share of the population. Each generation a
+  * bot's fitness is its expected payoff against the current population, and
+  * its share grows or shrinks in proportion to how far that fitness is above
+  * or below the population average. Payoffs come from a PayoffTable seeded
+  * with the matches in a results file; every so often the pairings between
+  * surviving bots whose payoff is still uncertain are played again, in
+  * parallel, and pooled into the table.
+  */
+public class Evolution {
+    
+    /** Share below which a bot is considered extinct. */
+    private static final double EXTINCT = 1e-9;
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java Evolution <results> [options]");
+            System.out.println("where <results> = results file giving the bots and the payoffs");
+            System.out.println("                  of the matches they have already played.");
+            System.out.println("Options:");
+            System.out.println("      -generations <g> = generations to run (default 5000).");
+            System.out.println("      -rate <r>      = selection strength, 0 to 1 (default 1).");
+            System.out.println("      -rounds <n>    = rounds per match when a payoff is");
+            System.out.println("                       refreshed (default 5000).");
+            System.out.println("      -tolerance <e> = standard error a payoff must reach before");
+            System.out.println("                       it is trusted (default 0.01).");
+            System.out.println("      -refresh <g>   = generations between refreshes (default 100).");
+            System.out.println("      -report <g>    = print the population every g generations.");
+            System.out.println("      -out <file>    = append the matches played to a results file.");
+            System.out.println("      -seed <seed>   = seed for the refresh matches (default random).");
+            System.out.println("      -threads <t>   = parallel matches (default number of cores).");
+            System.out.println("Example:");
+            System.out.println("java Evolution results.txt -generations 10000 -seed 1");
+            System.exit(-1);
+        }
+        
+        Path results = Paths.get(args[0]);
+        int generations = 5000;
+        double rate = 1;
+        long matchRounds = 5000;
+        double tolerance = 0.01;
+        int refresh = 100;
+        int report = 0;
+        Path out = null;
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-generations"))
+                generations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-rate"))
+                rate = Double.parseDouble(args[++i]);
+            else if (args[i].equals("-rounds"))
+                matchRounds = Long.parseLong(args[++i]);
+            else if (args[i].equals("-tolerance"))
+                tolerance = Double.parseDouble(args[++i]);
+            else if (args[i].equals("-refresh"))
+                refresh = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-report"))
+                report = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-out"))
+                out = Paths.get(args[++i]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        if (rate <= 0 || rate > 1) {
+            System.out.println("Error: invalid value for rate.");
+            System.exit(-1);
+        }
+        if (refresh < 1) {
+            System.out.println("Error: invalid value for refresh.");
+            System.exit(-1);
+        }
+        
+        List<String> roster = League.usable(League.readRoster(results));
+        if (roster.size() < 2) {
+            System.out.println("Error: fewer than two usable bots in " +
+                               results + ".");
+            System.exit(-1);
+        }
+        PayoffTable payoffs = new PayoffTable(roster);
+        int cached = payoffs.addResults(results);
+        System.out.printf("%d bots, %d cached matches, seed %d%n",
+                          roster.size(), cached, seed);
+        
+        SplittableRandom seeds = new SplittableRandom(seed);
+        double[] shares = new double[roster.size()];
+        Arrays.fill(shares, 1.0 / shares.length);
+        boolean[][] failed = new boolean[roster.size()][roster.size()];
+        int played = 0;
+        for (int g = 0; g < generations; g++) {
+            if (g % refresh == 0)
+                played += refresh(payoffs, shares, matchRounds, tolerance,
+                                  seeds, threads, out, failed);
+            shares = step(payoffs, shares, rate);
+            if (report > 0 && (g + 1) % report == 0)
+                printShares(g + 1, payoffs, shares);
+        }
+        
+        System.out.printf("%d matches played over %d generations%n", played,
+                          generations);
+        printTable(payoffs, shares);
+    }
+    
+    /** Plays another match for every pairing of surviving bots whose payoff
+      * is not yet known to within the tolerance. A pairing whose match has
+      * failed is not played again, and keeps the payoff it has.
+      * 
+      * @param failed the pairings whose match has failed, updated here.
+      * @return the number of matches played.
+      */
+    static int refresh(PayoffTable payoffs, double[] shares, long matchRounds,
+                       double tolerance, SplittableRandom seeds, int threads,
+                       Path out, boolean[][] failed) throws Exception {
+        List<Match> matches = new ArrayList<Match>();
+        List<int[]> pairs = new ArrayList<int[]>();
+        for (int i = 0; i < payoffs.size(); i++) {
+            if (shares[i] < EXTINCT)
+                continue;
+            for (int j = i + 1; j < payoffs.size(); j++) {
+                if (shares[j] < EXTINCT || failed[i][j])
+                    continue;
+                if (payoffs.getRounds(i, j) < matchRounds
+                        || payoffs.getStandardError(i, j) > tolerance) {
+                    matches.add(new Match(payoffs.getName(i),
+                                          payoffs.getName(j), matchRounds,
+                                          seeds.nextLong()));
+                    pairs.add(new int[] { i, j });
+                }
+            }
+        }
+        if (matches.isEmpty())
+            return 0;
+        
+        List<MatchResult> results = League.play(matches, threads);
+        for (int k = 0; k < results.size(); k++) {
+            MatchResult r = results.get(k);
+            if (r.isFailed()) {
+                System.err.println("Error: " + r + "; not playing this " +
+                                   "pairing again.");
+                failed[pairs.get(k)[0]][pairs.get(k)[1]] = true;
+            }
+            else
+                payoffs.add(r);
+        }
+        if (out != null)
+            append(out, results);
+        return matches.size();
+    }
+    
+    private static void append(Path out, List<MatchResult> results)
+        throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(
+                 out, StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            for (MatchResult r : results)
+                if (!r.isFailed())
+                    writer.println(r.toResultLine());
+        }
+    }
+    
+    /** Returns each bot's expected payoff against the population. */
+    static double[] fitness(PayoffTable payoffs, double[] shares) {
+        double[] fitness = new double[shares.length];
+        for (int i = 0; i < shares.length; i++)
+            for (int j = 0; j < shares.length; j++)
+                fitness[i] += payoffs.getPayoff(i, j) * shares[j];
+        return fitness;
+    }
+    
+    /** Advances the population one generation with the discrete replicator
+      * equation x_i' = x_i (1 + r f_i) / (1 + r f), where f is the mean
+      * fitness. Payoffs lie in [-1, 1], so shares stay non-negative for any
+      * rate up to 1.
+      */
+    static double[] step(PayoffTable payoffs, double[] shares, double rate) {
+        double[] fitness = fitness(payoffs, shares);
+        double[] next = new double[shares.length];
+        double total = 0;
+        for (int i = 0; i < shares.length; i++) {
+            next[i] = shares[i] * (1 + rate * fitness[i]);
+            total += next[i];
+        }
+        for (int i = 0; i < shares.length; i++)
+            next[i] = (next[i] / total < EXTINCT) ? 0 : next[i] / total;
+        return next;
+    }
+    
+    private static void printShares(int generation, PayoffTable payoffs,
+                                    double[] shares) {
+        StringBuilder line = new StringBuilder("Generation " + generation + ":");
+        for (int i : byShare(shares))
+            if (shares[i] > 0)
+                line.append(String.format(" %s %.4f", payoffs.getName(i),
+                                          shares[i]));
+        System.out.println(line);
+    }
+    
+    /** Prints every bot's final share and fitness, largest share first. */
+    static void printTable(PayoffTable payoffs, double[] shares) {
+        double[] fitness = fitness(payoffs, shares);
+        System.out.printf("%-4s %-24s %10s %10s%n", "Pos", "Bot", "Share",
+                          "Fitness");
+        int pos = 1;
+        for (int i : byShare(shares))
+            System.out.printf("%-4d %-24s %10.6f %10.6f%s%n", pos++,
+                              payoffs.getName(i), shares[i], fitness[i],
+                              (shares[i] == 0) ? "  (extinct)" : "");
+    }
+    
+    private static List<Integer> byShare(double[] shares) {
+        List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < shares.length; i++)
+            order.add(i);
+        Collections.sort(order, Comparator.comparingDouble(
+                             (Integer i) -> shares[i]).reversed());
+        return order;
+    }
+    
+}
@@ -0,0 +1,157 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/** Program that plays a match up to some round once, then forks it into
+  * many continuations played in parallel, and reports how the continuations
+  * turned out.
+  * 
+  * This answers questions such as "once MetaMyocainePowder has seen 10,000
+  * rounds of WolfBot, who wins the next 1,000?" without replaying the first
+  * 10,000 rounds for every sample. Both bots must be Snapshottable. Each
+  * continuation gets its own seed derived from the seed and its number, so
+  * the results do not depend on the number of threads.
+  */
+public class Forks {
+    
+    private static final double Z_95 = 1.959964;
+    
+    /** Statistics over the continuations a worker has played. */
+    private static class Totals {
+        RunningStats wins1 = new RunningStats();
+        RunningStats ties = new RunningStats();
+        RunningStats wins2 = new RunningStats();
+        RunningStats margin = new RunningStats();
+        
+        void add(long[] score) {
+            this.wins1.add(score[0]);
+            this.ties.add(score[1]);
+            this.wins2.add(score[2]);
+            this.margin.add(score[0] - score[2]);
+        }
+        
+        void merge(Totals other) {
+            this.wins1.merge(other.wins1);
+            this.ties.merge(other.ties);
+            this.wins2.merge(other.wins2);
+            this.margin.merge(other.margin);
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.out.println("Usage: java Forks <player1> <player2> <prefix> <rounds> <forks> [options]");
+            System.out.println("where <player1> = class name of first bot.");
+            System.out.println("      <player2> = class name of second bot.");
+            System.out.println("      <prefix>  = rounds to play before forking.");
+            System.out.println("      <rounds>  = rounds each continuation plays.");
+            System.out.println("      <forks>   = number of continuations.");
+            System.out.println("Options:");
+            System.out.println("      -seed <seed>   = seed of the prefix and the forks (default random).");
+            System.out.println("      -threads <t>   = parallel continuations (default number of cores).");
+            System.out.println("Example:");
+            System.out.println("java Forks MetaMyocainePowder WolfBot 10000 1000 200 -seed 1");
+            System.exit(-1);
+        }
+        
+        String bot1 = args[0];
+        String bot2 = args[1];
+        long prefix = Long.parseLong(args[2]);
+        long numRounds = Long.parseLong(args[3]);
+        long numForks = Long.parseLong(args[4]);
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 5; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        
+        BotRegistry bots = BotRegistry.getDefault();
+        RoShamBot player1 = null;
+        RoShamBot player2 = null;
+        try {
+            player1 = bots.create(bot1);
+            player2 = bots.create(bot2);
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage() + ".");
+            System.exit(-1);
+        }
+        for (RoShamBot player : new RoShamBot[] { player1, player2 }) {
+            if (!(player instanceof Snapshottable)) {
+                System.out.println("Error: " + player.getClass().getName() +
+                                   " cannot be forked (not Snapshottable).");
+                System.exit(-1);
+            }
+        }
+        Arbiter judge = new Arbiter(player1, player2, seed);
+        
+        long start = System.nanoTime();
+        judge.runRounds(prefix);
+        long[] before = judge.getScore();
+        double prefixSeconds = (System.nanoTime() - start) / 1e9;
+        
+        start = System.nanoTime();
+        Totals totals = run(judge, numForks, numRounds, seed, threads);
+        double forkSeconds = (System.nanoTime() - start) / 1e9;
+        
+        System.out.println(bot1 + " vs " + bot2 + " after " + prefix +
+                           " rounds: " + before[0] + " Ties " + before[1] +
+                           " " + before[2]);
+        System.out.printf("Prefix played once in %.2f s; %d continuations of " +
+                          "%d rounds in %.2f s on %d threads%n", prefixSeconds,
+                          numForks, numRounds, forkSeconds, threads);
+        System.out.printf("(replaying the prefix for each would add about " +
+                          "%.1f s of single-threaded play)%n",
+                          prefixSeconds * numForks);
+        System.out.println();
+        System.out.println("Over " + totals.margin.getCount() +
+                           " continuations (mean, standard deviation, 95% CI):");
+        print(bot1 + " wins", totals.wins1);
+        print("Ties", totals.ties);
+        print(bot2 + " wins", totals.wins2);
+        print(bot1 + " - " + bot2, totals.margin);
+    }
+    
+    /** Forks the match into continuations, plays them in parallel and
+      * combines the score of the rounds each played after the fork.
+      */
+    static Totals run(Arbiter judge, long numForks, long numRounds, long seed,
+                      int threads) throws Exception {
+        long[] before = judge.getScore();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> LongStream.range(0, numForks).parallel()
+                .mapToObj(i -> {
+                    Arbiter fork = judge.fork(Trials.trialSeed(seed, i));
+                    fork.runRounds(numRounds);
+                    long[] score = fork.getScore();
+                    for (int k = 0; k < score.length; k++)
+                        score[k] -= before[k];
+                    return score;
+                })
+                .collect(Totals::new, Totals::add, Totals::merge)).get();
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+    
+    private static void print(String label, RunningStats stats) {
+        double moe = stats.getMarginOfError(Z_95);
+        System.out.printf("%-40s %10.2f %10.2f   [%.2f, %.2f]%n", label,
+                          stats.getMean(), stats.getStandardDeviation(),
+                          stats.getMean() - moe, stats.getMean() + moe);
+    }
+    
+}
@@ -0,0 +1,102 @@
+/** A fixed-size histogram of durations in nanoseconds, for recording the
+  * latency of millions of calls with constant memory and a few instructions
+  * per call.
+  * 
+  * Values are grouped into logarithmic buckets: every power of two is split
+  * into 8 equal sub-buckets, so a reported percentile is within 12.5% of the
+  * true value. The maximum is tracked exactly.
+  */
+public class LatencyHistogram {
+    
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+    
+    private long[] counts;
+    private long count;
+    private long total;
+    private long max;
+    
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+    
+    /** Returns the bucket a value falls in. */
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int)Math.max(nanos, 0);
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int)(nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+    
+    /** Returns the largest value that falls in a bucket. */
+    static long bucketLimit(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+    
+    /** Records one duration. */
+    public void record(long nanos) {
+        this.counts[bucket(nanos)]++;
+        this.count++;
+        this.total += nanos;
+        if (nanos > this.max)
+            this.max = nanos;
+    }
+    
+    /** Adds every value recorded in another histogram to this one. */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++)
+            this.counts[i] += other.counts[i];
+        this.count += other.count;
+        this.total += other.total;
+        this.max = Math.max(this.max, other.max);
+    }
+    
+    /** Returns the number of values recorded. */
+    public long getCount() {
+        return this.count;
+    }
+    
+    /** Returns the mean of the values recorded, or 0 if there are none. */
+    public double getMean() {
+        return (this.count > 0) ? (double)this.total / this.count : 0;
+    }
+    
+    /** Returns the largest value recorded. */
+    public long getMax() {
+        return this.max;
+    }
+    
+    /** Returns an upper bound on the given percentile of the recorded
+      * values.
+      * 
+      * @param percentile a percentile between 0 and 100, e.g. 99.9.
+      */
+    public long getPercentile(double percentile) {
+        if (this.count == 0)
+            return 0;
+        long rank = (long)Math.ceil(percentile / 100.0 * this.count);
+        rank = Math.max(1, Math.min(rank, this.count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts[i];
+            if (seen >= rank)
+                return Math.min(bucketLimit(i), this.max);
+        }
+        return this.max;
+    }
+    
+    /** Returns a one-line summary with p50, p99, p99.9 and max. */
+    public String summary() {
+        return String.format("p50 %,d ns, p99 %,d ns, p99.9 %,d ns, max %,d ns",
+                             getPercentile(50), getPercentile(99),
+                             getPercentile(99.9), getMax());
+    }
+    
+}
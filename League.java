@@ -0,0 +1,480 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/** Program that runs a round-robin league between every pair of bots on a
+  * roster, playing the matches in parallel.
+  * 
+  * Results are written in the results.txt line format, in the same order as
+  * a sequential league would play them, followed by a summary league table
+  * on standard output. Each pairing gets its own seed drawn from the league
+  * seed, so a league's results do not depend on the number of threads.
+  */
+public class League {
+    
+    /** Running totals for one bot in the league table. */
+    static class Standing {
+        String name;
+        long wins;
+        long ties;
+        long losses;
+        int played;
+        int failed;
+        long allocated; // bytes, over the matches where it was measured
+        long meteredMoves;
+        double rates; // sum over matches of the margin per round played
+        
+        Standing(String name) {
+            this.name = name;
+        }
+        
+        /** Adds the score of one completed match, from this bot's side. */
+        void add(long wins, long ties, long losses) {
+            this.wins += wins;
+            this.ties += ties;
+            this.losses += losses;
+            this.played++;
+            long rounds = wins + ties + losses;
+            if (rounds > 0)
+                this.rates += (double)(wins - losses) / rounds;
+        }
+        
+        long margin() {
+            return this.wins - this.losses;
+        }
+        
+        /** Returns the margin per round, averaged over matches, so that a
+          * match stopped early counts as much as one played in full. The
+          * table is ranked by this rather than by the total margin.
+          */
+        double marginPerRound() {
+            return (this.played == 0) ? 0 : this.rates / this.played;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java League <n> <roster> [options]");
+            System.out.println("where <n>      = number of rounds per match.");
+            System.out.println("      <roster> = file listing one bot class name per line,");
+            System.out.println("                 or a results file to take the bots from.");
+            System.out.println("Options:");
+            System.out.println("      -out <file>    = results file to write (default results.txt).");
+            System.out.println("      -seed <seed>   = league seed (default random).");
+            System.out.println("      -threads <t>   = parallel matches (default number of cores).");
+            System.out.println("      -record <dir>  = write a transcript of every match to dir.");
+            System.out.println("      -stop <k>      = end each match early once its result is");
+            System.out.println("                       decided, checking every k rounds.");
+            System.out.println("      -trajectory <dir> = write each match's score at geometrically");
+            System.out.println("                       spaced rounds to dir.");
+            System.out.println("      -trials <t>    = matches per pairing, each with its own seed");
+            System.out.println("                       (default 1).");
+            System.out.println("      -bootstrap <r> = report confidence intervals of each bot's margin");
+            System.out.println("                       and rank from r resamples of the trials.");
+            System.out.println("      -journal <file> = record each finished match durably in file, and");
+            System.out.println("                       resume the league from it if it exists.");
+            System.out.println("      -store <file>  = append every result to a binary results store.");
+            System.out.println("      -reload <dir>  = load the bots whose .java or .class file is in dir");
+            System.out.println("                       each in its own class loader, and use a new");
+            System.out.println("                       version in later matches when the file changes.");
+            System.out.println("      -elo           = rate the bots with Elo as matches finish.");
+            System.out.println("      -alloc         = measure the bytes each bot allocates per move.");
+            System.out.println("      -deadline <ms> = time allowed per move; a bot that misses it");
+            System.out.println("                       10 times forfeits the match.");
+            System.out.println("Example:");
+            System.out.println("java League 10000 roster.txt -seed 1");
+            System.exit(-1);
+        }
+        
+        long numRounds = 0;
+        try {
+            numRounds = Long.parseLong(args[0]);
+        }
+        catch (NumberFormatException e) {
+            System.out.println("Error: invalid value for num rounds.");
+            System.exit(-1);
+        }
+        Path out = Paths.get("results.txt");
+        Long seed = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path recordDir = null;
+        Path trajectoryDir = null;
+        EarlyStop stop = null;
+        long deadlineNanos = 0;
+        boolean alloc = false;
+        EloRatings elo = null;
+        int trials = 1;
+        int resamples = 0;
+        Path storeFile = null;
+        Path journalFile = null;
+        BotLoader loader = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-alloc")) {
+                alloc = true;
+                continue;
+            }
+            if (args[i].equals("-elo")) {
+                elo = new EloRatings();
+                continue;
+            }
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            String option = args[i];
+            try {
+                if (args[i].equals("-out"))
+                    out = Paths.get(args[++i]);
+                else if (args[i].equals("-seed"))
+                    seed = Long.parseLong(args[++i]);
+                else if (args[i].equals("-threads"))
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-trials"))
+                    trials = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-journal"))
+                    journalFile = Paths.get(args[++i]);
+                else if (args[i].equals("-reload"))
+                    loader = new BotLoader(Paths.get(args[++i]));
+                else if (args[i].equals("-store"))
+                    storeFile = Paths.get(args[++i]);
+                else if (args[i].equals("-bootstrap"))
+                    resamples = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-stop"))
+                    stop = new EarlyStop(Integer.parseInt(args[++i]));
+                else if (args[i].equals("-deadline"))
+                    deadlineNanos = (long)(Double.parseDouble(args[++i]) * 1e6);
+                else if (args[i].equals("-record"))
+                    recordDir = Files.createDirectories(Paths.get(args[++i]));
+                else if (args[i].equals("-trajectory"))
+                    trajectoryDir = Files.createDirectories(Paths.get(args[++i]));
+                else {
+                    System.out.println("Error: unknown option " + option + ".");
+                    System.exit(-1);
+                }
+            }
+            catch (IllegalArgumentException e) {
+                System.out.println("Error: invalid value for " +
+                                   option.substring(1) + ".");
+                System.exit(-1);
+            }
+        }
+        
+        List<String> roster = usable(readRoster(Paths.get(args[1])), loader);
+        
+        if (resamples > 0 && trials < 2) {
+            System.out.println("Error: -bootstrap needs at least two trials " +
+                               "per pairing to resample.");
+            System.exit(-1);
+        }
+        
+        // Resume from the journal, which also fixes the league seed
+        LeagueJournal journal = null;
+        Map<Integer, MatchResult> completed = Collections.emptyMap();
+        if (journalFile != null) {
+            String settings = "rounds=" + numRounds + " trials=" + trials +
+                " stop=" + ((stop == null) ? 0 : stop.getCheckInterval()) +
+                " deadline=" + deadlineNanos + " bots=" + String.join(",", roster);
+            try {
+                journal = new LeagueJournal(journalFile, settings, seed);
+            }
+            catch (IOException e) {
+                System.out.println("Error: " + e.getMessage() + ".");
+                System.exit(-1);
+            }
+            seed = journal.getSeed();
+            completed = journal.getCompleted();
+            if (!completed.isEmpty())
+                System.out.println("Resuming: " + completed.size() +
+                                   " matches already played.");
+        }
+        else if (seed == null)
+            seed = new SplittableRandom().nextLong();
+        
+        List<Match> matches = pairings(roster, numRounds, seed, trials);
+        for (Match m : matches) {
+            // With several trials per pairing, the seed tells their files apart
+            String file = m.getPlayer1() + "-" + m.getPlayer2() +
+                ((trials > 1) ? "-" + Long.toHexString(m.getSeed()) : "");
+            if (recordDir != null)
+                m.record(recordDir.resolve(file + ".rpst"));
+            if (trajectoryDir != null)
+                m.trajectory(trajectoryDir.resolve(file + ".txt"));
+            if (stop != null)
+                m.stopEarly(stop);
+            if (deadlineNanos > 0)
+                m.moveDeadline(deadlineNanos, 10);
+            if (alloc)
+                m.meterAllocation();
+            if (loader != null)
+                m.loadFrom(loader);
+        }
+        if (loader != null)
+            loader.watch();
+        
+        // Only the matches missing from the journal are played
+        List<Match> remaining = new ArrayList<Match>();
+        Map<Long, Integer> indexBySeed = new HashMap<Long, Integer>();
+        for (int i = 0; i < matches.size(); i++) {
+            MatchResult done = completed.get(i);
+            if (done != null && done.getSeed() != matches.get(i).getSeed())
+                throw new IOException(journalFile + " does not match this " +
+                                      "league's schedule at match " + i);
+            if (done == null) {
+                remaining.add(matches.get(i));
+                indexBySeed.put(matches.get(i).getSeed(), i);
+            }
+            else if (elo != null)
+                elo.add(done);
+        }
+        
+        // Results go to the journal, the ratings and the store as each match
+        // finishes
+        ResultStore store = (storeFile == null) ? null
+                                                : new ResultStore(storeFile);
+        EloRatings ratings = elo;
+        LeagueJournal log = journal;
+        Consumer<MatchResult> listener = null;
+        if (ratings != null || store != null || log != null) {
+            listener = r -> {
+                if (ratings != null)
+                    ratings.add(r);
+                try {
+                    if (store != null)
+                        store.append(r);
+                    if (log != null)
+                        log.record(indexBySeed.get(r.getSeed()), r);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+        }
+        
+        long start = System.nanoTime();
+        List<MatchResult> played;
+        try {
+            played = play(remaining, threads, listener);
+        }
+        finally {
+            if (store != null)
+                store.close();
+            if (journal != null)
+                journal.close();
+            if (loader != null)
+                loader.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        List<MatchResult> results = new ArrayList<MatchResult>();
+        for (int i = 0, next = 0; i < matches.size(); i++)
+            results.add(completed.containsKey(i) ? completed.get(i)
+                                                 : played.get(next++));
+        
+        try (PrintWriter writer =
+                 new PrintWriter(Files.newBufferedWriter(out))) {
+            for (MatchResult r : results) {
+                if (r.isFailed())
+                    System.err.println("Error: " + r);
+                else
+                    writer.println(r.toResultLine());
+            }
+        }
+        
+        long roundsPlayed = 0;
+        for (MatchResult r : results)
+            roundsPlayed += r.getRounds();
+        System.out.printf("%d matches (%d rounds) in %.1f s on %d threads, " +
+                          "seed %d%n", results.size(), roundsPlayed, seconds,
+                          threads, seed);
+        printTable(roster, results);
+        if (deadlineNanos > 0) {
+            int leaked = DeadlineBot.getLeakedThreads();
+            if (leaked > 0)
+                System.out.println("Move threads still running after their " +
+                                   "matches: " + leaked + " (bots that ignore " +
+                                   "interrupts)");
+        }
+        if (elo != null) {
+            System.out.println();
+            elo.printLeaderboard();
+        }
+        if (resamples > 0) {
+            System.out.println();
+            new Bootstrap(roster, results).run(resamples, seed, threads);
+        }
+    }
+    
+    /** Reads a roster: one bot class name per line, or the lines of a
+      * results file, from which both bot names are taken.
+      */
+    static List<String> readRoster(Path file) throws IOException {
+        TreeSet<String> names = new TreeSet<String>();
+        for (String line : Files.readAllLines(file)) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens[0].isEmpty() || tokens[0].startsWith("#"))
+                continue;
+            names.add(tokens[0]);
+            if (tokens.length >= 6 && tokens[2].equals("Ties"))
+                names.add(tokens[4]);
+        }
+        return new ArrayList<String>(names);
+    }
+    
+    /** Returns the bots on a roster that can be created, reporting the rest
+      * before any match is played.
+      */
+    static List<String> usable(List<String> roster) {
+        return usable(roster, null);
+    }
+    
+    /** Returns the bots on a roster that can be created as usable(roster)
+      * does, but looking each one up through a loader when there is one, so
+      * that bots found only in its directory are kept.
+      */
+    static List<String> usable(List<String> roster, BotLoader loader) {
+        BotRegistry bots = BotRegistry.getDefault();
+        List<String> usable = new ArrayList<String>();
+        for (String name : roster) {
+            try {
+                if (loader != null)
+                    loader.create(name);
+                else
+                    bots.get(name);
+                usable.add(name);
+            }
+            catch (IllegalArgumentException e) {
+                System.err.println("Skipping " + e.getMessage());
+            }
+        }
+        return usable;
+    }
+    
+    /** Builds every pairing of the roster, each bot playing as player 1
+      * against the bots after it, with seeds drawn in order from the league
+      * seed.
+      */
+    static List<Match> pairings(List<String> roster, long numRounds,
+                                long seed) {
+        return pairings(roster, numRounds, seed, 1);
+    }
+    
+    /** Builds every pairing of the roster as pairings(roster, numRounds,
+      * seed) does, with a number of trials of each, every trial with its own
+      * seed.
+      */
+    static List<Match> pairings(List<String> roster, long numRounds,
+                                long seed, int trials) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<Match> matches = new ArrayList<Match>();
+        for (int i = 0; i < roster.size(); i++)
+            for (int j = i + 1; j < roster.size(); j++)
+                for (int t = 0; t < trials; t++)
+                    matches.add(new Match(roster.get(i), roster.get(j),
+                                          numRounds, seeds.nextLong()));
+        return matches;
+    }
+    
+    /** Plays matches in parallel on a fork-join pool. Every match is its own
+      * task, so one long match does not hold up a whole batch of others.
+      * 
+      * @return the results, in the same order as the matches.
+      */
+    static List<MatchResult> play(List<Match> matches, int threads)
+        throws Exception {
+        return play(matches, threads, null);
+    }
+    
+    /** Plays matches in parallel, as play(matches, threads) does, and hands
+      * each result to a listener on the worker thread as soon as its match
+      * finishes. The listener must be thread safe.
+      * 
+      * @param listener called with every result, or null.
+      * @return the results, in the same order as the matches.
+      */
+    static List<MatchResult> play(List<Match> matches, int threads,
+                                  Consumer<MatchResult> listener)
+        throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<MatchResult>> tasks =
+                new ArrayList<ForkJoinTask<MatchResult>>();
+            for (Match m : matches) {
+                if (listener == null)
+                    tasks.add(pool.submit(m::run));
+                else
+                    tasks.add(pool.submit(() -> {
+                        MatchResult r = m.run();
+                        listener.accept(r);
+                        return r;
+                    }));
+            }
+            List<MatchResult> results = new ArrayList<MatchResult>();
+            for (ForkJoinTask<MatchResult> task : tasks)
+                results.add(task.get());
+            return results;
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+    
+    /** Prints each bot's total wins, ties and losses over the league, best
+      * margin per round first.
+      */
+    static void printTable(List<String> roster, List<MatchResult> results) {
+        Map<String, Standing> table = new LinkedHashMap<String, Standing>();
+        for (String name : roster)
+            table.put(name, new Standing(name));
+        for (MatchResult r : results) {
+            Standing s1 = table.get(r.getPlayer1());
+            Standing s2 = table.get(r.getPlayer2());
+            if (r.isFailed()) {
+                s1.failed++;
+                s2.failed++;
+                continue;
+            }
+            s1.add(r.getWins1(), r.getTies(), r.getWins2());
+            s2.add(r.getWins2(), r.getTies(), r.getWins1());
+            if (r.getAllocatedBytes(1) >= 0) {
+                s1.allocated += r.getAllocatedBytes(1);
+                s1.meteredMoves += r.getMeteredRounds();
+                s2.allocated += r.getAllocatedBytes(2);
+                s2.meteredMoves += r.getMeteredRounds();
+            }
+        }
+        
+        List<Standing> standings = new ArrayList<Standing>(table.values());
+        Collections.sort(standings, Comparator.comparingDouble(
+                             Standing::marginPerRound).reversed());
+        
+        System.out.printf("%-4s %-24s %6s %10s %10s %10s %10s %10s %12s%n",
+                          "Pos", "Bot", "Played", "Wins", "Ties", "Losses",
+                          "Margin", "Per round", "Bytes/move");
+        int pos = 1;
+        for (Standing s : standings) {
+            String bytesPerMove = (s.meteredMoves > 0)
+                ? String.format("%,.0f", (double)s.allocated / s.meteredMoves)
+                : "-";
+            System.out.printf("%-4d %-24s %6d %10d %10d %10d %10d %10.4f " +
+                              "%12s%s%n", pos++, s.name, s.played, s.wins,
+                              s.ties, s.losses, s.margin(),
+                              s.marginPerRound(), bytesPerMove,
+                              (s.failed > 0) ? "  (" + s.failed + " failed)" : "");
+        }
+    }
+    
+}
@@ -0,0 +1,139 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/** A durable record of the matches a league has completed, so that a league
+  * that is interrupted can be resumed without replaying them.
+  * 
+  * The journal is a text file. Its first two lines give the league's
+  * settings and seed:
+  * 
+  *   # League journal 1 rounds=10000 trials=1 stop=0 deadline=0 bots=A,B,C
+  *   # seed -4962768465676381896
+  * 
+  * and each completed match then adds a line with its index in the league's
+  * schedule, its seed, its duration in nanoseconds and its result:
+  * 
+  *   0 8061616837224393203 41234567 ApeBot 0 Ties 5000 BeatBot 5000
+  * 
+  * Every line is forced to disk before the match counts as done. Because
+  * each match's seed is drawn in schedule order from the league seed, a
+  * resumed league plays the missing matches exactly as an uninterrupted one
+  * would. A journal is only resumed by a league with the same settings, and
+  * a line left incomplete by a crash is dropped.
+  */
+public class LeagueJournal implements Closeable {
+    
+    private static final String HEADER = "# League journal 1 ";
+    private static final String SEED = "# seed ";
+    
+    private FileChannel channel;
+    private long seed;
+    private Map<Integer, MatchResult> completed;
+    
+    /** Opens a journal, resuming it if it already exists.
+      * 
+      * @param file the journal file.
+      * @param settings the league's settings other than the seed, as one
+      *        line; a journal written with other settings is refused.
+      * @param seed the league seed, or null to take it from an existing
+      *        journal or pick one at random for a new one.
+      * @throws IOException if the journal cannot be read or written, or was
+      *         written for a different league.
+      */
+    public LeagueJournal(Path file, String settings, Long seed)
+        throws IOException {
+        this.completed = new HashMap<Integer, MatchResult>();
+        long valid = 0;
+        if (Files.exists(file) && Files.size(file) > 0) {
+            byte[] bytes = Files.readAllBytes(file);
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            int end = text.lastIndexOf('\n') + 1;
+            List<String> lines =
+                List.of(text.substring(0, end).split("\n", -1));
+            if (lines.size() < 3 || !lines.get(0).equals(HEADER + settings))
+                throw new IOException(file + " is not a journal of this " +
+                                      "league (settings differ)");
+            if (!lines.get(1).startsWith(SEED))
+                throw new IOException(file + " has no league seed");
+            this.seed = Long.parseLong(lines.get(1).substring(SEED.length()));
+            if (seed != null && seed != this.seed)
+                throw new IOException(file + " was written with seed " +
+                                      this.seed + ", not " + seed);
+            for (String line : lines.subList(2, lines.size() - 1))
+                parse(line);
+            valid = text.substring(0, end).getBytes(StandardCharsets.UTF_8).length;
+        }
+        else {
+            this.seed = (seed != null) ? seed : new SplittableRandom().nextLong();
+        }
+        
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                        StandardOpenOption.WRITE);
+        if (valid == 0) {
+            this.channel.truncate(0);
+            append(HEADER + settings + "\n" + SEED + this.seed + "\n", 0);
+        }
+        else
+            this.channel.truncate(valid);
+    }
+    
+    private void parse(String line) throws IOException {
+        String[] tokens = line.trim().split("\\s+");
+        if (tokens.length < 9 || !tokens[5].equals("Ties"))
+            throw new IOException("bad journal line: " + line);
+        long[] score = { Long.parseLong(tokens[4]), Long.parseLong(tokens[6]),
+                         Long.parseLong(tokens[8]) };
+        this.completed.put(Integer.parseInt(tokens[0]),
+                           new MatchResult(tokens[3], tokens[7],
+                                           Long.parseLong(tokens[1]), score,
+                                           Long.parseLong(tokens[2])));
+    }
+    
+    private void append(String text, long position) throws IOException {
+        ByteBuffer buffer =
+            ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining())
+            position += this.channel.write(buffer, position);
+        this.channel.force(false);
+    }
+    
+    /** Returns the league seed. */
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    /** Returns the results already in the journal, by schedule index. */
+    public Map<Integer, MatchResult> getCompleted() {
+        return Collections.unmodifiableMap(this.completed);
+    }
+    
+    /** Records a completed match and forces it to disk. Failed matches are
+      * not recorded, so they are played again on resume.
+      * 
+      * @param index the match's position in the league's schedule.
+      * @param r the match's result.
+      */
+    public synchronized void record(int index, MatchResult r)
+        throws IOException {
+        if (r.isFailed())
+            return;
+        append(index + " " + r.getSeed() + " " + r.getDurationNanos() + " " +
+               r.toResultLine().trim() + "\n", this.channel.size());
+    }
+    
+    public void close() throws IOException {
+        this.channel.close();
+    }
+    
+}
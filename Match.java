@@ -0,0 +1,179 @@
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** A single match between two named bots, set up so that it can be run on
+  * any thread: the bots are instantiated fresh when the match is run, and
+  * anything a bot throws is caught and reported in the result instead of
+  * escaping.
+  */
+public class Match {
+    
+    private String player1;
+    private String player2;
+    private long rounds;
+    private long seed;
+    private Path transcript; // null unless the match is recorded
+    private Path trajectory; // null unless the score is sampled
+    private EarlyStop stop;  // null unless the match may end early
+    private long deadlineNanos; // 0 unless moves have a time limit
+    private int maxViolations;
+    private boolean meterAllocation;
+    private BotLoader loader; // null unless bots come from a BotLoader
+    
+    /** Sets up a match.
+      * 
+      * @param player1 class name of the first bot.
+      * @param player2 class name of the second bot.
+      * @param rounds the number of rounds to play.
+      * @param seed the match seed.
+      */
+    public Match(String player1, String player2, long rounds, long seed) {
+        this.player1 = player1;
+        this.player2 = player2;
+        this.rounds = rounds;
+        this.seed = seed;
+    }
+    
+    /** Records the match to a transcript file when it is run. */
+    public Match record(Path transcript) {
+        this.transcript = transcript;
+        return this;
+    }
+    
+    /** Writes the score at geometrically spaced rounds to a file when the
+      * match is run; see ScoreTrajectory.
+      */
+    public Match trajectory(Path file) {
+        this.trajectory = file;
+        return this;
+    }
+    
+    /** Ends the match early once the rule finds the result decided. */
+    public Match stopEarly(EarlyStop stop) {
+        this.stop = stop;
+        return this;
+    }
+    
+    /** Puts both bots on a per-move deadline. A bot that forfeits by
+      * missing too many deadlines loses every round left in the match.
+      * 
+      * @param timeoutNanos the time allowed for each move.
+      * @param maxViolations the number of missed deadlines that forfeits the
+      *        match.
+      */
+    public Match moveDeadline(long timeoutNanos, int maxViolations) {
+        this.deadlineNanos = timeoutNanos;
+        this.maxViolations = maxViolations;
+        return this;
+    }
+    
+    /** Measures the bytes each bot allocates per move. */
+    public Match meterAllocation() {
+        this.meterAllocation = true;
+        return this;
+    }
+    
+    /** Creates the bots with a BotLoader when the match is run, rather than
+      * from the class path.
+      */
+    public Match loadFrom(BotLoader loader) {
+        this.loader = loader;
+        return this;
+    }
+    
+    public String getPlayer1() {
+        return this.player1;
+    }
+    
+    public String getPlayer2() {
+        return this.player2;
+    }
+    
+    public long getRounds() {
+        return this.rounds;
+    }
+    
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    /** Plays the match.
+      * 
+      * @return the result, which is marked failed if a bot could not be
+      *         created or threw during the match.
+      */
+    public MatchResult run() {
+        long start = System.nanoTime();
+        MatchRecorder recorder = null;
+        Arbiter judge = null;
+        try {
+            if (this.loader != null)
+                judge = new Arbiter(this.loader.create(this.player1),
+                                    this.loader.create(this.player2), this.seed);
+            else {
+                BotRegistry bots = BotRegistry.getDefault();
+                judge = new Arbiter(bots.create(this.player1),
+                                    bots.create(this.player2), this.seed);
+            }
+            if (this.deadlineNanos > 0)
+                judge.setMoveDeadline(this.deadlineNanos, this.maxViolations);
+            if (this.meterAllocation)
+                judge.enableAllocationTracking();
+            if (this.trajectory != null)
+                judge.enableScoreTrajectory();
+            if (this.transcript != null) {
+                recorder = new MatchRecorder(this.transcript, this.player1,
+                                             this.player2, this.seed);
+                judge.setRecorder(recorder);
+            }
+            if (this.stop == null)
+                judge.runRounds(this.rounds);
+            else
+                judge.runUntilDecided(this.rounds, this.stop);
+            if (recorder != null)
+                recorder.close();
+            if (this.trajectory != null) {
+                try (Writer out = Files.newBufferedWriter(this.trajectory)) {
+                    judge.getTrajectory().write(out, this.player1, this.player2);
+                }
+            }
+            
+            long[] score = judge.getScore();
+            if (judge.getForfeit() != 0) {
+                long remaining = this.rounds - (score[0] + score[1] + score[2]);
+                score[(judge.getForfeit() == 1) ? 2 : 0] += remaining;
+            }
+            MatchResult result =
+                new MatchResult(this.player1, this.player2, this.seed, score,
+                                System.nanoTime() - start);
+            if (this.meterAllocation)
+                result.setAllocation(judge.getAllocatedBytes(1),
+                                     judge.getAllocatedBytes(2),
+                                     judge.getMeteredRounds());
+            return result;
+        }
+        catch (Throwable e) {
+            // Whatever a bot throws fails only its own match, unless the JVM
+            // itself can no longer be trusted to run the rest of the league
+            if (e instanceof VirtualMachineError &&
+                !(e instanceof StackOverflowError))
+                throw (VirtualMachineError)e;
+            return new MatchResult(this.player1, this.player2, this.seed,
+                                   e.toString());
+        }
+        finally {
+            if (judge != null)
+                judge.close();
+            if (recorder != null) {
+                try {
+                    recorder.close();
+                }
+                catch (Exception e) {
+                    // Already failed; the result carries the first error.
+                }
+            }
+        }
+    }
+    
+}
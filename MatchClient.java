@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Program that plays a local bot against a bot hosted by a MatchServer,
+  * over any number of concurrent sessions, and reports the results and the
+  * round rate.
+  * 
+  * The local bot is player 1 and gets the random stream of seat 1, so each
+  * session plays exactly the match the Arbiter would play between the same
+  * two bots with the session's seed: the seed itself for a single session,
+  * or the seeds Trials gives its trials for several. It is also a reference
+  * for clients written in other languages; see MatchServer for the
+  * protocol.
+  */
+public class MatchClient {
+    
+    private static final double Z_95 = 1.959964;
+    private static final Action[] ACTIONS = Action.values();
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.out.println("Usage: java MatchClient <host> <port> <player1> <player2> <rounds> [options]");
+            System.out.println("where <host>    = address of the server.");
+            System.out.println("      <port>    = port the server listens on.");
+            System.out.println("      <player1> = class name of the bot to play here.");
+            System.out.println("      <player2> = class name of the bot the server plays.");
+            System.out.println("      <rounds>  = rounds per session.");
+            System.out.println("Options:");
+            System.out.println("      -sessions <s>  = concurrent sessions (default 1).");
+            System.out.println("      -seed <seed>   = seed of the sessions (default random).");
+            System.out.println("Example:");
+            System.out.println("java MatchClient localhost 7071 MyocainePowder NashBot 100000 -sessions 8");
+            System.exit(-1);
+        }
+        
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        String bot1 = args[2];
+        String bot2 = args[3];
+        long numRounds = Long.parseLong(args[4]);
+        int sessions = 1;
+        long seed = new SplittableRandom().nextLong();
+        for (int i = 5; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-sessions"))
+                sessions = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        
+        InetSocketAddress server = new InetSocketAddress(host, port);
+        ExecutorService pool = Executors.newFixedThreadPool(sessions);
+        List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+        long start = System.nanoTime();
+        for (int s = 0; s < sessions; s++) {
+            long sessionSeed = (sessions == 1) ? seed : Trials.trialSeed(seed, s);
+            futures.add(pool.submit(() -> play(server, bot1, bot2, numRounds,
+                                               sessionSeed)));
+        }
+        RunningStats margin = new RunningStats();
+        long[] total = new long[3];
+        try {
+            for (Future<long[]> f : futures) {
+                long[] score = f.get();
+                for (int k = 0; k < 3; k++)
+                    total[k] += score[k];
+                margin.add(score[0] - score[2]);
+            }
+        }
+        catch (Exception e) {
+            System.out.println("Error: " + e.getCause().getMessage() + ".");
+            System.exit(-1);
+        }
+        finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        long played = total[0] + total[1] + total[2];
+        System.out.printf("%d sessions, %d rounds in %.2f s: %.0f rounds/s%n",
+                          sessions, played, seconds, played / seconds);
+        System.out.println(bot1 + " " + total[0] + " Ties " + total[1] + " " +
+                           bot2 + " " + total[2]);
+        if (sessions > 1) {
+            double moe = margin.getMarginOfError(Z_95);
+            System.out.printf("%s - %s per session: %.2f [%.2f, %.2f]%n", bot1,
+                              bot2, margin.getMean(), margin.getMean() - moe,
+                              margin.getMean() + moe);
+        }
+    }
+    
+    /** Plays one session and returns its score as the server counted it:
+      * wins for the local bot, ties and wins for the server's bot.
+      * 
+      * @throws IOException if the connection fails or the server refuses
+      *         the match.
+      */
+    static long[] play(InetSocketAddress server, String bot1, String bot2,
+                       long numRounds, long seed) throws IOException {
+        RoShamBot player = BotRegistry.getDefault().create(bot1);
+        if (player instanceof Randomized)
+            ((Randomized)player).setRandom(Arbiter.seatRandom(seed, 1));
+        
+        try (SocketChannel channel = SocketChannel.open(server)) {
+            channel.socket().setTcpNoDelay(true);
+            byte[] name = bot2.getBytes(StandardCharsets.UTF_8);
+            if (name.length > MatchServer.MAX_NAME_LENGTH)
+                throw new IOException(bot2 + ": bot name longer than " +
+                                      MatchServer.MAX_NAME_LENGTH + " bytes");
+            ByteBuffer hello = ByteBuffer.allocate(14 + name.length);
+            hello.putInt(MatchServer.MAGIC).putLong(seed)
+                .putShort((short)name.length).put(name).flip();
+            writeFully(channel, hello);
+            ByteBuffer answer = readFully(channel, 1);
+            if (answer.get() != 0) {
+                int length = readFully(channel, 2).getShort() & 0xFFFF;
+                throw new IOException("server refused " + bot2 + ": " +
+                                      StandardCharsets.UTF_8.decode(
+                                          readFully(channel, length)));
+            }
+            
+            // Each move depends on the server bot's last one, so a round is
+            // one byte out and one byte back
+            ByteBuffer move = ByteBuffer.allocate(1);
+            ByteBuffer reply = ByteBuffer.allocate(1);
+            Action last = Action.ROCK;
+            for (long r = 0; r < numRounds; r++) {
+                move.clear();
+                move.put((byte)player.getNextMove(last).ordinal()).flip();
+                writeFully(channel, move);
+                reply.clear();
+                while (reply.hasRemaining())
+                    if (channel.read(reply) < 0)
+                        throw new IOException("server closed the session");
+                last = ACTIONS[reply.get(0)];
+            }
+            
+            move.clear();
+            move.put(MatchServer.QUIT).flip();
+            writeFully(channel, move);
+            ByteBuffer score = readFully(channel, 24);
+            return new long[] { score.getLong(), score.getLong(),
+                                score.getLong() };
+        }
+    }
+    
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer)
+        throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+    
+    private static ByteBuffer readFully(SocketChannel channel, int n)
+        throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(n);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new IOException("server closed the session");
+        return buffer.flip();
+    }
+    
+}
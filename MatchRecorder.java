@@ -0,0 +1,134 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Writes a compact binary transcript of a match.
+  * 
+  * Each round's pair of actions is stored as the 4-bit code
+  * 3 * a1.ordinal() + a2.ordinal(), two rounds per byte (the earlier round
+  * in the low nibble), so a 10,000,000-round match takes about 5 MB. The
+  * file starts with a header:
+  * 
+  *   4 bytes  magic "RPST"
+  *   2 bytes  format version
+  *   8 bytes  number of rounds recorded
+  *   8 bytes  match seed
+  *   2 bytes + UTF-8  class name of player 1
+  *   2 bytes + UTF-8  class name of player 2
+  * 
+  * The round count is written when the recorder is closed, so a transcript
+  * that was never closed reads as having zero rounds.
+  */
+public class MatchRecorder implements Closeable {
+    
+    public static final int MAGIC = 0x52505354; // "RPST"
+    public static final short VERSION = 1;
+    static final int ROUNDS_OFFSET = 6;
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long rounds;
+    private int pending; // code of an unpaired round, in the low nibble
+    
+    /** Creates (or truncates) a transcript file and writes its header.
+      * 
+      * @param file the transcript file.
+      * @param player1 class name of the first bot.
+      * @param player2 class name of the second bot.
+      * @param seed the seed the match was played with.
+      */
+    public MatchRecorder(Path file, String player1, String player2, long seed)
+        throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                        StandardOpenOption.WRITE,
+                                        StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.rounds = 0;
+            
+            this.buffer.putInt(MAGIC);
+            this.buffer.putShort(VERSION);
+            this.buffer.putLong(0);
+            this.buffer.putLong(seed);
+            putName(player1);
+            putName(player2);
+        }
+        catch (RuntimeException | Error e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+    
+    private void putName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        this.buffer.putShort((short)bytes.length);
+        this.buffer.put(bytes);
+    }
+    
+    /** Returns the 4-bit code for a round. */
+    public static int encode(Action a1, Action a2) {
+        return 3 * a1.ordinal() + a2.ordinal();
+    }
+    
+    /** Appends one round to the transcript.
+      * 
+      * @param a1 the action played by player 1.
+      * @param a2 the action played by player 2.
+      */
+    public void record(Action a1, Action a2) throws IOException {
+        int code = encode(a1, a2);
+        if ((this.rounds & 1) == 0) {
+            this.pending = code;
+        }
+        else {
+            if (!this.buffer.hasRemaining())
+                flush();
+            this.buffer.put((byte)(this.pending | (code << 4)));
+        }
+        this.rounds++;
+    }
+    
+    /** Returns the number of rounds recorded so far. */
+    public long getRounds() {
+        return this.rounds;
+    }
+    
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining())
+            this.channel.write(this.buffer);
+        this.buffer.clear();
+    }
+    
+    /** Writes any buffered rounds, fills in the round count and closes the
+      * file.
+      */
+    public void close() throws IOException {
+        if (this.channel == null)
+            return;
+        try {
+            if ((this.rounds & 1) == 1) {
+                if (!this.buffer.hasRemaining())
+                    flush();
+                this.buffer.put((byte)this.pending);
+            }
+            flush();
+            
+            ByteBuffer count = ByteBuffer.allocate(8);
+            count.putLong(this.rounds);
+            count.flip();
+            this.channel.write(count, ROUNDS_OFFSET);
+        }
+        finally {
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+    
+}
@@ -0,0 +1,131 @@
+/** The outcome of one match between two named bots. */
+public class MatchResult {
+    
+    private String player1;
+    private String player2;
+    private long seed;
+    private long rounds;
+    private long[] score; // wins for player 1, ties, wins for player 2
+    private long durationNanos;
+    private String error; // null unless the match could not be completed
+    private long[] allocated; // bytes allocated by each bot; null if unmeasured
+    private long meteredRounds;
+    
+    /** Creates the result of a completed match.
+      * 
+      * @param player1 class name of the first bot.
+      * @param player2 class name of the second bot.
+      * @param seed the match seed.
+      * @param score the final score, as returned by the Arbiter.
+      * @param durationNanos how long the match took to play.
+      */
+    public MatchResult(String player1, String player2, long seed,
+                       long[] score, long durationNanos) {
+        this.player1 = player1;
+        this.player2 = player2;
+        this.seed = seed;
+        this.score = score.clone();
+        this.rounds = score[0] + score[1] + score[2];
+        this.durationNanos = durationNanos;
+    }
+    
+    /** Creates the result of a match that failed.
+      * 
+      * @param player1 class name of the first bot.
+      * @param player2 class name of the second bot.
+      * @param seed the match seed.
+      * @param error what went wrong.
+      */
+    public MatchResult(String player1, String player2, long seed,
+                       String error) {
+        this(player1, player2, seed, new long[3], 0);
+        this.error = error;
+    }
+    
+    public String getPlayer1() {
+        return this.player1;
+    }
+    
+    public String getPlayer2() {
+        return this.player2;
+    }
+    
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    /** Returns the number of rounds played. */
+    public long getRounds() {
+        return this.rounds;
+    }
+    
+    /** Returns the number of rounds won by player 1. */
+    public long getWins1() {
+        return this.score[0];
+    }
+    
+    /** Returns the number of tied rounds. */
+    public long getTies() {
+        return this.score[1];
+    }
+    
+    /** Returns the number of rounds won by player 2. */
+    public long getWins2() {
+        return this.score[2];
+    }
+    
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+    
+    /** Attaches allocation measurements to this result.
+      * 
+      * @param bytes1 bytes allocated by player 1's moves.
+      * @param bytes2 bytes allocated by player 2's moves.
+      * @param rounds the number of rounds measured.
+      */
+    public void setAllocation(long bytes1, long bytes2, long rounds) {
+        this.allocated = new long[] { bytes1, bytes2 };
+        this.meteredRounds = rounds;
+    }
+    
+    /** Returns the bytes allocated by a bot's moves, or -1 if allocation was
+      * not measured.
+      * 
+      * @param seat 1 for player 1, 2 for player 2.
+      */
+    public long getAllocatedBytes(int seat) {
+        return (this.allocated == null) ? -1 : this.allocated[seat - 1];
+    }
+    
+    /** Returns the number of rounds over which allocation was measured. */
+    public long getMeteredRounds() {
+        return this.meteredRounds;
+    }
+    
+    /** Returns true if the match could not be completed. */
+    public boolean isFailed() {
+        return this.error != null;
+    }
+    
+    /** Returns what went wrong, or null if the match was completed. */
+    public String getError() {
+        return this.error;
+    }
+    
+    /** Returns the result in the results.txt line format, e.g.
+      * "ApeBot 0 Ties 5000 BeatBot 5000 ".
+      */
+    public String toResultLine() {
+        return this.player1 + " " + this.score[0] + " Ties " + this.score[1] +
+            " " + this.player2 + " " + this.score[2] + " ";
+    }
+    
+    public String toString() {
+        if (isFailed())
+            return this.player1 + " vs " + this.player2 + " failed: " +
+                this.error;
+        return toResultLine();
+    }
+    
+}
@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Program that hosts the registered bots on a socket, so that programs in
+  * other processes, in any language, can play matches against them.
+  * 
+  * Each connection is one match against one bot, in which the client is
+  * player 1 and the hosted bot player 2. The client opens the session with
+  * 
+  *   4 bytes  magic "RPS" followed by the protocol version, 1
+  *   8 bytes  match seed
+  *   2 bytes + UTF-8  class name of the bot to play, at most
+  *                    MAX_NAME_LENGTH (16370) bytes
+  * 
+  * and the server answers with one byte, 0 if the match has begun, or 1
+  * followed by 2 bytes + UTF-8 saying why not, after which it closes the
+  * connection. Then every round is one byte each way: the client sends its
+  * move (0 = ROCK, 1 = PAPER, 2 = SCISSORS) and the server answers with the
+  * bot's move for the same round. The bot chooses its move from the
+  * client's earlier moves only, as with the Arbiter, so a client may send
+  * several moves ahead when its own moves do not depend on the bot's. The
+  * client ends the match by sending 0xFF, to which the server answers with
+  * three 8-byte counts, the client's wins, ties and the bot's wins, and
+  * closes the connection. All numbers are big-endian.
+  * 
+  * The bot receives the random stream of seat 2 of an Arbiter match with
+  * the same seed, so a client that plays a bot with the stream of seat 1
+  * plays exactly the match the Arbiter would.
+  * 
+  * Sessions are served by a few event loops, each a thread with its own NIO
+  * selector, so thousands of concurrent sessions need no more threads than
+  * there are cores. A bot's moves are computed on its session's loop.
+  */
+public class MatchServer {
+    
+    public static final int MAGIC = 0x52505301; // "RPS", version 1
+    public static final byte QUIT = (byte)0xFF;
+    private static final int HELLO_SIZE = 14;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final Action[] ACTIONS = Action.values();
+    
+    /** The longest bot name, in UTF-8 bytes, that the opening message may
+      * carry; it must fit in a session's input buffer with the rest of the
+      * message. The server refuses longer names.
+      */
+    public static final int MAX_NAME_LENGTH = BUFFER_SIZE - HELLO_SIZE;
+    
+    private AtomicLong sessions = new AtomicLong();
+    private AtomicLong active = new AtomicLong();
+    private AtomicLong rounds = new AtomicLong();
+    
+    /** The state of one connection. */
+    private class Session {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        RoShamBot bot; // null until the session has begun
+        Action lastClientMove = Action.ROCK;
+        long[] score = new long[3]; // client wins, ties, bot wins
+        boolean closing; // close once out is written
+        
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+        
+        /** Handles whatever has been read, writing the answers to out. */
+        void process() {
+            this.in.flip();
+            if (this.bot == null && !this.closing)
+                begin();
+            long played = 0;
+            while (this.bot != null && !this.closing && this.in.hasRemaining()
+                   && this.out.remaining() >= 24) {
+                byte b = this.in.get();
+                if (b == QUIT) {
+                    this.out.putLong(this.score[0]).putLong(this.score[1])
+                        .putLong(this.score[2]);
+                    this.closing = true;
+                }
+                else if (b < 0 || b >= ACTIONS.length)
+                    refuse("bad move " + b);
+                else {
+                    Action client = ACTIONS[b];
+                    Action move = this.bot.getNextMove(this.lastClientMove);
+                    this.out.put((byte)move.ordinal());
+                    int outcome = (client.ordinal() - move.ordinal() + 3) % 3;
+                    // outcome 1 = client wins, 2 = bot wins, 0 = tie
+                    this.score[(outcome == 0) ? 1 : (outcome == 1) ? 0 : 2]++;
+                    this.lastClientMove = client;
+                    played++;
+                }
+            }
+            this.in.compact();
+            MatchServer.this.rounds.addAndGet(played);
+        }
+        
+        /** Starts the match once the whole opening message has arrived. */
+        private void begin() {
+            if (this.in.remaining() < HELLO_SIZE)
+                return;
+            this.in.mark();
+            int magic = this.in.getInt();
+            long seed = this.in.getLong();
+            int length = this.in.getShort() & 0xFFFF;
+            if (magic != MAGIC) {
+                refuse("not an RPS version 1 client");
+                return;
+            }
+            if (length > this.in.capacity() - HELLO_SIZE) {
+                // It would never fit in the buffer, so wait no longer
+                refuse("bot name longer than " + MAX_NAME_LENGTH + " bytes");
+                return;
+            }
+            if (this.in.remaining() < length) {
+                this.in.reset();
+                return;
+            }
+            byte[] bytes = new byte[length];
+            this.in.get(bytes);
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            try {
+                RoShamBot bot = BotRegistry.getDefault().create(name);
+                if (bot instanceof Randomized)
+                    ((Randomized)bot).setRandom(Arbiter.seatRandom(seed, 2));
+                this.bot = bot;
+                this.out.put((byte)0);
+            }
+            catch (IllegalArgumentException e) {
+                refuse(e.getMessage());
+            }
+            catch (Throwable e) {
+                // The constructor threw; refuse, as for an unknown bot
+                fatal(e);
+                refuse(name + " could not be created: " + e);
+            }
+        }
+        
+        private void refuse(String reason) {
+            byte[] message = reason.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(message.length, this.out.remaining() - 3);
+            this.out.put((byte)1).putShort((short)length)
+                .put(message, 0, length);
+            this.closing = true;
+        }
+    }
+    
+    /** A thread that serves the sessions handed to it with one selector. */
+    private class Loop implements Runnable {
+        final Selector selector;
+        final Queue<SocketChannel> added = new ConcurrentLinkedQueue<SocketChannel>();
+        
+        Loop() throws IOException {
+            this.selector = Selector.open();
+        }
+        
+        void add(SocketChannel channel) {
+            this.added.add(channel);
+            this.selector.wakeup();
+        }
+        
+        public void run() {
+            while (true) {
+                try {
+                    this.selector.select();
+                    SocketChannel channel;
+                    while ((channel = this.added.poll()) != null)
+                        register(channel);
+                    Iterator<SelectionKey> keys =
+                        this.selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        serve(key);
+                    }
+                }
+                catch (Throwable e) {
+                    // Keep serving the other sessions
+                    fatal(e);
+                    System.err.println("MatchServer: " + e);
+                }
+            }
+        }
+        
+        private void register(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                channel.register(this.selector, SelectionKey.OP_READ,
+                                 new Session(channel));
+                MatchServer.this.sessions.incrementAndGet();
+                MatchServer.this.active.incrementAndGet();
+            }
+            catch (IOException e) {
+                System.err.println("MatchServer: " + e);
+                try {
+                    channel.close();
+                }
+                catch (IOException closing) {
+                    // Dropping it anyway.
+                }
+            }
+        }
+        
+        private void serve(SelectionKey key) {
+            Session session = (Session)key.attachment();
+            try {
+                if (key.isReadable()) {
+                    if (session.channel.read(session.in) < 0) {
+                        close(key);
+                        return;
+                    }
+                    session.process();
+                }
+                session.out.flip();
+                session.channel.write(session.out);
+                boolean pending = session.out.hasRemaining();
+                session.out.compact();
+                if (!pending && session.closing) {
+                    close(key);
+                    return;
+                }
+                // Stop reading while answers are backed up, so a client that
+                // does not read cannot make the server buffer without limit
+                int interest = pending ? SelectionKey.OP_WRITE : 0;
+                if (!session.closing && session.out.remaining() >= 24)
+                    interest |= SelectionKey.OP_READ;
+                key.interestOps(interest);
+            }
+            catch (Throwable e) {
+                // Whatever a bot throws ends only its own session
+                fatal(e);
+                if (!(e instanceof IOException) && session.bot != null)
+                    System.err.println("MatchServer: " + session.bot.getClass()
+                                       .getName() + " threw " + e);
+                close(key);
+            }
+        }
+        
+        private void close(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            }
+            catch (IOException e) {
+                // Closing anyway.
+            }
+            MatchServer.this.active.decrementAndGet();
+        }
+    }
+    
+    /** Rethrows errors after which the JVM can no longer be trusted to serve
+      * the other sessions, as Match does for a league.
+      */
+    private static void fatal(Throwable e) {
+        if (e instanceof VirtualMachineError &&
+            !(e instanceof StackOverflowError))
+            throw (VirtualMachineError)e;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int port = 7071;
+        InetAddress bind = InetAddress.getLoopbackAddress();
+        int loops = Runtime.getRuntime().availableProcessors();
+        double statsSeconds = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-port"))
+                port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-bind"))
+                bind = InetAddress.getByName(args[++i]);
+            else if (args[i].equals("-loops"))
+                loops = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-stats"))
+                statsSeconds = Double.parseDouble(args[++i]);
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.out.println("Usage: java MatchServer [options]");
+                System.out.println("Options:");
+                System.out.println("      -port <p>      = port to listen on (default 7071).");
+                System.out.println("      -bind <addr>   = address to listen on (default loopback).");
+                System.out.println("      -loops <n>     = event loop threads (default number of cores).");
+                System.out.println("      -stats <s>     = print sessions and rounds every s seconds.");
+                System.out.println("Example:");
+                System.out.println("java MatchServer -port 7071 -stats 5");
+                System.exit(-1);
+            }
+        }
+        
+        MatchServer server = new MatchServer();
+        BotRegistry.getDefault();
+        Loop[] running = new Loop[loops];
+        for (int l = 0; l < loops; l++) {
+            running[l] = server.new Loop();
+            Thread thread = new Thread(running[l], "match-server-" + l);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        if (statsSeconds > 0) {
+            long intervalMillis = (long)(statsSeconds * 1000);
+            Thread stats = new Thread(() -> server.printStats(intervalMillis),
+                                      "match-server-stats");
+            stats.setDaemon(true);
+            stats.start();
+        }
+        
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress(bind, port), 1024);
+            System.out.println("MatchServer listening on " +
+                               bind.getHostAddress() + ":" + port + " with " +
+                               loops + " loops and " +
+                               BotRegistry.getDefault().getNames().size() +
+                               " bots");
+            for (long n = 0; ; n++)
+                running[(int)(n % loops)].add(listener.accept());
+        }
+    }
+    
+    private void printStats(long intervalMillis) {
+        long lastRounds = 0;
+        try {
+            while (true) {
+                Thread.sleep(intervalMillis);
+                long now = this.rounds.get();
+                System.out.printf("%d sessions (%d open), %d rounds, %.0f " +
+                                  "rounds/s%n", this.sessions.get(),
+                                  this.active.get(), now,
+                                  (now - lastRounds) * 1000.0 / intervalMillis);
+                lastRounds = now;
+            }
+        }
+        catch (InterruptedException e) {
+            // Stop printing.
+        }
+    }
+    
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** A match transcript written by MatchRecorder, memory-mapped for reading.
+  * 
+  * A buffer holds at most Integer.MAX_VALUE bytes, so the rounds are mapped
+  * in windows of 1 GiB, and a transcript of any length can be read.
+  */
+public class MatchTranscript {
+    
+    private static final Action[] ACTIONS = Action.values();
+    private static final int WINDOW_BITS = 30;
+    private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+    
+    private String player1;
+    private String player2;
+    private long rounds;
+    private long seed;
+    private ByteBuffer[] data; // packed rounds, one window per buffer
+    
+    /** Opens and maps a transcript file.
+      * 
+      * @param file the transcript to read.
+      * @throws IOException if the file cannot be read or is not a transcript.
+      */
+    public MatchTranscript(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer map =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                            Math.min(size, Integer.MAX_VALUE));
+            // Magic, version, rounds, seed and the two name lengths
+            if (map.remaining() < MatchRecorder.ROUNDS_OFFSET + 16 + 2 + 2
+                    || map.getInt() != MatchRecorder.MAGIC)
+                throw new IOException(file + " is not a match transcript");
+            short version = map.getShort();
+            if (version != MatchRecorder.VERSION)
+                throw new IOException(file + " has unsupported version " +
+                                      version);
+            this.rounds = map.getLong();
+            this.seed = map.getLong();
+            this.player1 = getName(map, file);
+            this.player2 = getName(map, file);
+            long start = map.position();
+            long bytes = (this.rounds + 1) / 2;
+            if (this.rounds < 0 || size - start < bytes)
+                throw new IOException(file + " is truncated");
+            int windows = (int)((bytes + WINDOW_MASK) >>> WINDOW_BITS);
+            this.data = new ByteBuffer[windows];
+            for (int w = 0; w < windows; w++) {
+                long offset = (long)w << WINDOW_BITS;
+                long length = Math.min(bytes - offset, WINDOW_MASK + 1);
+                this.data[w] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                           start + offset, length);
+            }
+        }
+    }
+    
+    private static String getName(ByteBuffer buffer, Path file)
+        throws IOException {
+        if (buffer.remaining() < 2)
+            throw new IOException(file + " is truncated");
+        int length = buffer.getShort() & 0xFFFF;
+        if (buffer.remaining() < length)
+            throw new IOException(file + " is truncated");
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /** Returns the class name of player 1. */
+    public String getPlayer1() {
+        return this.player1;
+    }
+    
+    /** Returns the class name of player 2. */
+    public String getPlayer2() {
+        return this.player2;
+    }
+    
+    /** Returns the number of rounds in the transcript. */
+    public long getRounds() {
+        return this.rounds;
+    }
+    
+    /** Returns the seed the match was played with. */
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    /** Returns the 4-bit code (see MatchRecorder.encode) of a round.
+      * 
+      * @param round the round, counting from 0.
+      */
+    public int getCode(long round) {
+        long index = round >>> 1;
+        int b = this.data[(int)(index >>> WINDOW_BITS)]
+            .get((int)(index & WINDOW_MASK));
+        return ((round & 1) == 0) ? (b & 0xF) : ((b >>> 4) & 0xF);
+    }
+    
+    /** Returns the action a player took in a round.
+      * 
+      * @param seat 1 for player 1, 2 for player 2.
+      * @param round the round, counting from 0.
+      */
+    public Action getAction(int seat, long round) {
+        int code = getCode(round);
+        return ACTIONS[(seat == 1) ? code / 3 : code % 3];
+    }
+    
+}
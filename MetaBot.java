@@ -1,7 +1,7 @@
 import java.util.*;
 /* Nancy & Rachel - metastrategy bot
  */ 
-public class MetaBot implements RoShamBot {
+public class MetaBot implements RoShamBot, Randomized {
   
   private static final int R = 0;
   private static final int P = 1;
@@ -21,6 +21,8 @@ public class MetaBot implements RoShamBot {
   
   private static final double RANDOM_MOVE_RATE = .05;
   
+  private SplittableRandom random = new SplittableRandom();
+  
   private static final Map<Integer, Action> numToAction;
   static{
     numToAction = new HashMap<Integer, Action>();
@@ -48,8 +50,7 @@ public class MetaBot implements RoShamBot {
       this.metaStrategy = meta;
       this.baseStrategy = base; 
       this.rating = 0.0;
-      Random r = new Random();
-      this.prediction  = r.nextInt(3);
+      this.prediction  = random.nextInt(3);
     }
     @Override
     public int compareTo(StrategyRecord other){ //"better" strategies are less than "worse" strategies
@@ -85,6 +86,17 @@ public class MetaBot implements RoShamBot {
       }
     } 
   }
+  
+  /* Use the given random stream from now on. Before the first move, also
+   * redraw the strategies' initial predictions from it.
+   */
+  public void setRandom(SplittableRandom random){
+    this.random = random;
+    if(this.myMoves.length() == 0){
+      for(StrategyRecord s : this.strategyQ)
+        s.prediction = random.nextInt(3);
+    }
+  }
    /* What move will the opponent make next based on our strategies and ratings?
     */ 
   private int predictNextMove() { //choose randomly among strategy records with highest rating
@@ -100,8 +112,7 @@ public class MetaBot implements RoShamBot {
     
     this.strategyQ = newStrategyQ;
     
-    Random r = new Random();
-    return predictions.get(r.nextInt(predictions.size()));
+    return predictions.get(this.random.nextInt(predictions.size()));
   }
 
   private static int getCounterMove(int move){
@@ -132,13 +143,11 @@ public class MetaBot implements RoShamBot {
   }
   
   private int getRandomPrediction(){
-    Random r = new Random();
-    return r.nextInt(3);
+    return this.random.nextInt(3);
   }
   
   private int getBoltzPrediction(int[] boltzRatings){
-    Random rand = new Random();
-    double randnum = rand.nextDouble() * (Math.exp(boltzRatings[0]) 
+    double randnum = this.random.nextDouble() * (Math.exp(boltzRatings[0]) 
                                             + Math.exp(boltzRatings[1])
                                             + Math.exp(boltzRatings[2]));
     if(randnum < Math.exp(boltzRatings[0]))
@@ -219,8 +228,7 @@ public class MetaBot implements RoShamBot {
   
   private int getHistoryPrediction(String history){
     int[] moveCount = countNextMoves(history);
-    Random rand = new Random();
-    double r = rand.nextDouble();
+    double r = this.random.nextDouble();
 
     List<Integer> maxList = getMaxIndices(moveCount);
     for(int i = 0; i < maxList.size(); i++){
@@ -279,8 +287,7 @@ public class MetaBot implements RoShamBot {
       this.myMoves += 0;
     this.oppMoves += this.actionToNum.get(oppLastMove);
     this.updateStrategies();
-    Random r = new Random();
-    if(r.nextDouble() < RANDOM_MOVE_RATE){
+    if(this.random.nextDouble() < RANDOM_MOVE_RATE){
       int randomMove = getRandomPrediction();
       this.myMoves += randomMove;
       return this.numToAction.get(randomMove);
@@ -13,11 +13,13 @@
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
-public class MetaMyocainePowder implements RoShamBot {
+public class MetaMyocainePowder implements RoShamBot, Randomized, Snapshottable {
 
     private static final int META_STRATEGIES = 6;
     private static final double DECAY_FACTOR = 0.9;
+    private static final Action[] ACTIONS = Action.values();
 
     private enum Strategy {
         RANDOM, FREQUENCY, HISTORY
@@ -44,6 +46,19 @@ public class MetaMyocainePowder implements RoShamBot {
             this.histMove = Action.ROCK;
         }
 
+        /* Copy the scores and moves of another meta-strategy
+
+            @param other the meta-strategy to copy
+        */
+        private MetaStrategy(MetaStrategy other) {
+            this.randomScore = other.randomScore;
+            this.frequencyScore = other.frequencyScore;
+            this.historyScore = other.historyScore;
+            this.randMove = other.randMove;
+            this.freqMove = other.freqMove;
+            this.histMove = other.histMove;
+        }
+
         /* Update the scores tracked by the meta-strategy based on what you
             predicted and what the opponent played
 
@@ -76,9 +91,9 @@ public class MetaMyocainePowder implements RoShamBot {
     // Useful for using the P' strategies
     private Action playerLastMove;
     // The full history of the opponent's moves
-    private List<Action> opponentHistory;
+    private MoveHistory opponentHistory;
     // The full history of your moves
-    private List<Action> playerHistory;
+    private MoveHistory playerHistory;
     // Counts for frequency analysis
     private double rockCount;
     private double paperCount;
@@ -89,6 +104,8 @@ public class MetaMyocainePowder implements RoShamBot {
     private double playerScissorsCount;
     // The move that history analysis predicts you'll play
     private Action historyPredicted;
+    // Source of random moves, handed out by the Arbiter
+    private SplittableRandom random = new SplittableRandom();
 
     public MetaMyocainePowder() {
         // Make each MetaStrategy object
@@ -101,9 +118,9 @@ public class MetaMyocainePowder implements RoShamBot {
         // Useful for using the P' strategies
         this.playerLastMove = Action.ROCK;
         // The full history of opponent's moves
-        this.opponentHistory = new ArrayList<Action>();
+        this.opponentHistory = new MoveHistory();
         // The full history of your moves
-        this.playerHistory = new ArrayList<Action>();
+        this.playerHistory = new MoveHistory();
         // Counts for frequency analysis
         this.rockCount = 0;
         this.paperCount = 0;
@@ -125,8 +142,8 @@ public class MetaMyocainePowder implements RoShamBot {
     */
     public Action getNextMove(Action lastOpponentMove) {
 
-        this.opponentHistory.add(lastOpponentMove);
-        this.playerHistory.add(this.playerLastMove);
+        this.opponentHistory.add(lastOpponentMove.ordinal());
+        this.playerHistory.add(this.playerLastMove.ordinal());
     
         // Update meta-strategy scores
         this.p0.updateScores(lastOpponentMove);
@@ -542,6 +559,40 @@ public class MetaMyocainePowder implements RoShamBot {
     // Random
     /////////
 
+    /* Set the random source used for the bot's random moves
+
+        @param random the random stream handed out by the Arbiter
+    */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /* Copy the whole state of the bot, for forking a match. The histories
+        share their full chunks with the copy, so only their tails are copied.
+
+        @return an independent bot in the same state, awaiting a random stream
+    */
+    public MetaMyocainePowder copy() {
+        MetaMyocainePowder copy = new MetaMyocainePowder();
+        copy.p0 = copy.new MetaStrategy(this.p0);
+        copy.p1 = copy.new MetaStrategy(this.p1);
+        copy.p2 = copy.new MetaStrategy(this.p2);
+        copy.pPrime0 = copy.new MetaStrategy(this.pPrime0);
+        copy.pPrime1 = copy.new MetaStrategy(this.pPrime1);
+        copy.pPrime2 = copy.new MetaStrategy(this.pPrime2);
+        copy.playerLastMove = this.playerLastMove;
+        copy.opponentHistory = this.opponentHistory.copy();
+        copy.playerHistory = this.playerHistory.copy();
+        copy.rockCount = this.rockCount;
+        copy.paperCount = this.paperCount;
+        copy.scissorsCount = this.scissorsCount;
+        copy.playerRockCount = this.playerRockCount;
+        copy.playerPaperCount = this.playerPaperCount;
+        copy.playerScissorsCount = this.playerScissorsCount;
+        copy.historyPredicted = this.historyPredicted;
+        return copy;
+    }
+
     /* Plays a random move to ensure the bot doesn't get exploited and
         slaughtered and can at least come out not losing that much.
 
@@ -554,7 +605,7 @@ public class MetaMyocainePowder implements RoShamBot {
         double ONE_THIRD = 1.0/3.0;
         double TWO_THIRDS = 2.0/3.0;
 
-        double play = Math.random();
+        double play = this.random.nextDouble();
         if (play < ONE_THIRD) {
             return Action.ROCK;
         } else if (play < TWO_THIRDS) {
@@ -667,7 +718,7 @@ public class MetaMyocainePowder implements RoShamBot {
         // Make a list of the last length# of moves
         int patternPos = 0;
         for (int i = this.opponentHistory.size() - length; i < this.opponentHistory.size(); i++) {
-            oppPattern.add(patternPos, this.opponentHistory.get(i));
+            oppPattern.add(patternPos, ACTIONS[this.opponentHistory.get(i)]);
             patternPos++;
         }
 
@@ -676,18 +727,18 @@ public class MetaMyocainePowder implements RoShamBot {
         for (int i = 0; i < this.opponentHistory.size() - length; i++) {
             patternPos = 0;
             int historyPos = i;
-            Action played = this.opponentHistory.get(historyPos);
+            Action played = ACTIONS[this.opponentHistory.get(historyPos)];
             Action patternPlayed = oppPattern.get(patternPos);
             // You matched the first move. Check the rest of them
             while (played == patternPlayed) {
                 historyPos++;
                 patternPos++;
-                played = this.opponentHistory.get(historyPos);
+                played = ACTIONS[this.opponentHistory.get(historyPos)];
                 patternPlayed = oppPattern.get(patternPos);
                 // You matched the whole string. Set winner to the thing that
                 // beats the next move played in the history
                 if (patternPos == length - 1) {
-                    Action nextMove = this.opponentHistory.get(historyPos+1);
+                    Action nextMove = ACTIONS[this.opponentHistory.get(historyPos+1)];
                     switch (nextMove) {
                         case ROCK:
                             this.historyPredicted = Action.ROCK;
@@ -828,7 +879,7 @@ public class MetaMyocainePowder implements RoShamBot {
         // Make a list of the last length# of moves
         int patternPos = 0;
         for (int i = this.playerHistory.size() - length; i < this.playerHistory.size(); i++) {
-            playerPattern.add(patternPos, this.playerHistory.get(i));
+            playerPattern.add(patternPos, ACTIONS[this.playerHistory.get(i)]);
             patternPos++;
         }
 
@@ -837,18 +888,18 @@ public class MetaMyocainePowder implements RoShamBot {
         for (int i = 0; i < this.playerHistory.size() - length; i++) {
             patternPos = 0;
             int historyPos = i;
-            Action played = this.playerHistory.get(historyPos);
+            Action played = ACTIONS[this.playerHistory.get(historyPos)];
             Action patternPlayed = playerPattern.get(patternPos);
             // You matched the first move. Check the rest of them
             while (played == patternPlayed) {
                 historyPos++;
                 patternPos++;
-                played = this.playerHistory.get(historyPos);
+                played = ACTIONS[this.playerHistory.get(historyPos)];
                 patternPlayed = playerPattern.get(patternPos);
                 // You matched the whole string. Set winner to the thing that
                 // beats the next move played in the history
                 if (patternPos == length - 1) {
-                    Action nextMove = this.playerHistory.get(historyPos+1);
+                    Action nextMove = ACTIONS[this.playerHistory.get(historyPos+1)];
                     switch (nextMove) {
                         case ROCK:
                             this.historyPredicted = Action.ROCK;
@@ -1,9 +1,18 @@
 
+import java.util.SplittableRandom;
+
 /** A non-equilibrium Rock-Paper-Scissors player.
   * 
   * @author RR
   */
-public class MixedBot implements RoShamBot {
+public class MixedBot implements RoShamBot, Randomized {
+    
+    private SplittableRandom random = new SplittableRandom();
+    
+    /** Sets the random source used to pick actions. */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
  
     /** Returns an action according to the mixed strategy (0.5, 0.5, 0.0).
       * 
@@ -12,7 +21,7 @@ public class MixedBot implements RoShamBot {
       * @return the next action to play.
       */
     public Action getNextMove(Action lastOpponentMove) {
-        double coinFlip = Math.random();
+        double coinFlip = this.random.nextDouble();
         
         if (coinFlip <= 0.5)
             return Action.ROCK;
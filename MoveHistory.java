@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/** An append-only history of small values (moves, or a bot's predictions of
+  * them), kept one byte each in fixed-size chunks.
+  * 
+  * A chunk is never written again once it is full, so a copy shares the full
+  * chunks with the original and copies only the chunk table and the last,
+  * partly filled chunk. Forking a bot that keeps its history here therefore
+  * costs time and memory proportional to rounds / CHUNK_SIZE + CHUNK_SIZE
+  * rather than to the rounds played, and the forks of one prefix hold that
+  * prefix only once between them.
+  */
+public class MoveHistory {
+    
+    /** The number of values in each chunk. */
+    public static final int CHUNK_SIZE = 1024;
+    private static final int CHUNK_SHIFT = 10; // log2(CHUNK_SIZE)
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    private byte[][] chunks = new byte[16][];
+    private int size;
+    
+    /** Appends a value to the end of the history.
+      * 
+      * @param value the value to append; it must fit in a byte.
+      * @throws IllegalArgumentException if the value does not fit in a byte.
+      */
+    public void add(int value) {
+        if (value != (byte) value)
+            throw new IllegalArgumentException("history value out of range: " + value);
+        int chunk = this.size >>> CHUNK_SHIFT;
+        if (chunk == this.chunks.length)
+            this.chunks = Arrays.copyOf(this.chunks, 2 * chunk);
+        if (this.chunks[chunk] == null)
+            this.chunks[chunk] = new byte[CHUNK_SIZE];
+        this.chunks[chunk][this.size & CHUNK_MASK] = (byte) value;
+        this.size++;
+    }
+    
+    /** Returns a value of the history.
+      * 
+      * @param index the position of the value, counting from 0.
+      * @return the value at that position.
+      * @throws IndexOutOfBoundsException if there is no value at that position.
+      */
+    public int get(int index) {
+        if (index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("index " + index + ", size " + this.size);
+        return this.chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+    
+    /** Returns the number of values in the history. */
+    public int size() {
+        return this.size;
+    }
+    
+    /** Returns an independent history holding the same values, sharing the
+      * full chunks with this one.
+      */
+    public MoveHistory copy() {
+        MoveHistory copy = new MoveHistory();
+        copy.chunks = this.chunks.clone();
+        copy.size = this.size;
+        int last = this.size >>> CHUNK_SHIFT;
+        if (last < copy.chunks.length && copy.chunks[last] != null)
+            copy.chunks[last] = copy.chunks[last].clone();
+        return copy;
+    }
+    
+}
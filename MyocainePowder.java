@@ -14,8 +14,9 @@
 */
 import java.util.List;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
-public class MyocainePowder implements RoShamBot {
+public class MyocainePowder implements RoShamBot, Randomized {
 
     private enum Strategy {
         RANDOM, FREQUENCY, HISTORY
@@ -42,6 +43,7 @@ public class MyocainePowder implements RoShamBot {
     private int[] randomScore;    // For picking a strategy with a meta-strategy
     private int[] frequencyScore;
     private int[] historyScore;
+    private SplittableRandom random = new SplittableRandom(); // For random moves
 
     public MyocainePowder() {
         this.rockScore = 0;
@@ -167,6 +169,14 @@ public class MyocainePowder implements RoShamBot {
         return Strategy.HISTORY;
     }
 
+    /* Set the random source used for the bot's random moves
+
+        @param random the random stream handed out by the Arbiter
+    */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
     /* Plays a random move to ensure the bot doesn't get exploited and
         slaughtered and can at least come out not losing that much.
 
@@ -179,7 +189,7 @@ public class MyocainePowder implements RoShamBot {
         double ONE_THIRD = 1.0/3.0;
         double TWO_THIRDS = 2.0/3.0;
 
-        double play = Math.random();
+        double play = this.random.nextDouble();
         if (play < ONE_THIRD) {
             return Action.ROCK;
         } else if (play < TWO_THIRDS) {
@@ -9,8 +9,9 @@
 */
 import java.util.List;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
-public class MyocainePowderSimple implements RoShamBot {
+public class MyocainePowderSimple implements RoShamBot, Randomized {
 
     private enum Strategy {
         RANDOM, FREQUENCY, HISTORY
@@ -29,6 +30,7 @@ public class MyocainePowderSimple implements RoShamBot {
     private int randomScore;    // For picking a strategy with a meta-strategy
     private int frequencyScore;
     private int historyScore;
+    private SplittableRandom random = new SplittableRandom(); // For random moves
 
     public MyocainePowderSimple() {
         this.rockScore = 0;
@@ -104,6 +106,14 @@ public class MyocainePowderSimple implements RoShamBot {
         return Strategy.HISTORY;
     }
 
+    /* Set the random source used for the bot's random moves
+
+        @param random the random stream handed out by the Arbiter
+    */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
     /* Plays a random move to ensure the bot doesn't get exploited and
         slaughtered and can at least come out not losing that much.
 
@@ -116,7 +126,7 @@ public class MyocainePowderSimple implements RoShamBot {
         double ONE_THIRD = 1.0/3.0;
         double TWO_THIRDS = 2.0/3.0;
 
-        double play = Math.random();
+        double play = this.random.nextDouble();
         if (play < ONE_THIRD) {
             return Action.ROCK;
         } else if (play < TWO_THIRDS) {
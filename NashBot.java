@@ -1,9 +1,23 @@
 
+import java.util.SplittableRandom;
+
 /** A Nash Equilibrium Rock-Paper-Scissors player.
   * 
   * @author RR
   */
-public class NashBot implements RoShamBot {
+public class NashBot implements RoShamBot, Randomized, Snapshottable {
+    
+    private SplittableRandom random = new SplittableRandom();
+    
+    /** Sets the random source used to pick actions. */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+    
+    /** Returns a new NashBot; the random stream is its only state. */
+    public NashBot copy() {
+        return new NashBot();
+    }
  
     /** Returns an action according to the mixed strategy (1/3, 1/3, 1/3).
       * 
@@ -12,7 +26,7 @@ public class NashBot implements RoShamBot {
       * @return the next action to play.
       */
     public Action getNextMove(Action lastOpponentMove) {
-        double coinFlip = Math.random();
+        double coinFlip = this.random.nextDouble();
         
         if (coinFlip <= 1.0/3.0)
             return Action.ROCK;
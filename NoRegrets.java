@@ -1,7 +1,7 @@
 import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.Collections;
 import java.util.*;
 
@@ -14,7 +14,7 @@ import java.util.*;
 // the current algorithm will let the opponent win if they guess correctly, we switch 
 // algorithms to change it up so their algorithm stops being accurate.
 
-public class NoRegrets implements RoShamBot {
+public class NoRegrets implements RoShamBot, Randomized, Snapshottable {
 
 	private static final List<Action> MOVES = 
 		Collections.unmodifiableList(Arrays.asList(Action.values()));
@@ -23,9 +23,10 @@ public class NoRegrets implements RoShamBot {
 	private double[] regretTotal, strategyTotal;
 	private double[] myStrat, actionUtility;//, opStrat // these arrays persist but their values are continually reset.
 	// FOR ALL ARRAYS: 0 = Rock, 1 = Paper, 2 = Scissors
-	private List<Action> myHist;
-	private List<Action> opHist;
+	private MoveHistory myHist;
+	private MoveHistory opHist;
 	private int moves;
+	private SplittableRandom random;
 
 
 	/** Constructor for NoRegrets.
@@ -42,12 +43,45 @@ public class NoRegrets implements RoShamBot {
 		this.myStrat = new double[3];
 		this.actionUtility = new double[3];
 		//this.opStrat = { .3, .3, .3 };
-		this.myHist = new ArrayList<Action>();
-		this.opHist = new ArrayList<Action>();
+		this.myHist = new MoveHistory();
+		this.opHist = new MoveHistory();
 		this.moves = -1;
+		this.random = new SplittableRandom();
 		// this.last = Action.ROCK;
 	}
 
+	/** Sets the random source the bot draws its moves from.
+	  *
+	  *	Parameters:
+	  * @param random - SplittableRandom - the bot's random stream
+	  *
+	  * Returns:
+	  * 	None
+	  */
+	public void setRandom(SplittableRandom random) {
+		this.random = random;
+	}
+
+	/** Returns a copy of the bot's regrets and histories, for forking a match.
+	  *
+	  *	Parameters:
+	  * 	None
+	  *
+	  * Returns:
+	  * @return NoRegrets - an independent bot awaiting its random stream
+	  */
+	public NoRegrets copy() {
+		NoRegrets copy = new NoRegrets();
+		copy.regretTotal = this.regretTotal.clone();
+		copy.strategyTotal = this.strategyTotal.clone();
+		copy.myStrat = this.myStrat.clone();
+		copy.actionUtility = this.actionUtility.clone();
+		copy.myHist = this.myHist.copy();
+		copy.opHist = this.opHist.copy();
+		copy.moves = this.moves;
+		return copy;
+	}
+
 	/** Returns the bot's next move.
 	  *
 	  *	Parameters:
@@ -57,14 +91,14 @@ public class NoRegrets implements RoShamBot {
 	  * @return Action - the bot's move
 	  */
 	public Action getNextMove(Action lastOpponentMove) {
-		this.opHist.add(lastOpponentMove);
+		this.opHist.add(lastOpponentMove.ordinal());
 		this.moves++;
 
 		int myAction, otherAction;
 
 		if(this.myHist.size() <= TRACEBACK) {
-			Action next = MOVES.get((int)(Math.random()*3));
-			this.myHist.add(next);
+			Action next = MOVES.get(this.random.nextInt(3));
+			this.myHist.add(next.ordinal());
 			return next;
 		}
 
@@ -81,10 +115,10 @@ public class NoRegrets implements RoShamBot {
 			for(int j = 0; j < 3; j++)
 				this.actionUtility[j] = 0;
 
-			if(this.myHist.get(i) == Action.PAPER) myAction = 1;
-			else if(this.myHist.get(i) == Action.SCISSORS) myAction = 2;
-			if(this.opHist.get(i) == Action.PAPER) otherAction = 1;
-			else if(this.opHist.get(i) == Action.SCISSORS) otherAction = 2;
+			if(MOVES.get(this.myHist.get(i)) == Action.PAPER) myAction = 1;
+			else if(MOVES.get(this.myHist.get(i)) == Action.SCISSORS) myAction = 2;
+			if(MOVES.get(this.opHist.get(i)) == Action.PAPER) otherAction = 1;
+			else if(MOVES.get(this.opHist.get(i)) == Action.SCISSORS) otherAction = 2;
 
 			//actionUtility[otherAction] += 0;
 			this.actionUtility[otherAction == 2 ? 0 : otherAction + 1] += 1;
@@ -106,7 +140,7 @@ public class NoRegrets implements RoShamBot {
 
 		//get new strategy and return next move
 		//this.updateStrategy();
-		double d = Math.random();
+		double d = this.random.nextDouble();
 		double cumulativeProb = 0;
 		int i;
 
@@ -120,7 +154,7 @@ public class NoRegrets implements RoShamBot {
 		else if(i == 1) next = Action.PAPER;
 		else next = Action.SCISSORS;
 
-		this.myHist.add(next);
+		this.myHist.add(next.ordinal());
 		return next;
 	}
 
@@ -162,7 +196,7 @@ public class NoRegrets implements RoShamBot {
 			double paper = 0.0;
 			double scissors = 0.0;
 			for(int i = this.moves - 1; i >= this.moves - TRACEBACK; i--) {
-				Action a = opHist.get(i);
+				Action a = MOVES.get(opHist.get(i));
 				if(a == ROCK) rock++;
 				else if(a == PAPER) paper++;
 				else scissors++;
@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Pairwise payoffs between the bots on a roster, averaged over every match
+  * played between each pair.
+  * 
+  * The payoff to bot i against bot j is its result per round, counting a
+  * win as 1, a tie as 0 and a loss as -1, averaged over their matches so
+  * that a match stopped early counts as much as one played in full. The
+  * table is antisymmetric and every bot scores 0 against itself. Each
+  * estimate carries the standard error of that mean over the matches, which
+  * says whether the pair needs more of them.
+  */
+public class PayoffTable {
+    
+    private List<String> bots;
+    private Map<String, Integer> index;
+    private long[][] rounds; // rounds played between i and j, symmetric
+    private double[][] rates; // sum over matches of i's margin per round
+    private double[][] squares; // sum over matches of its square, symmetric
+    private int[][] matches;  // matches played between i and j, symmetric
+    
+    /** Creates an empty table for a roster. */
+    public PayoffTable(List<String> bots) {
+        this.bots = new ArrayList<String>(bots);
+        this.index = new HashMap<String, Integer>();
+        for (int i = 0; i < this.bots.size(); i++)
+            this.index.put(this.bots.get(i), i);
+        this.rounds = new long[this.bots.size()][this.bots.size()];
+        this.rates = new double[this.bots.size()][this.bots.size()];
+        this.squares = new double[this.bots.size()][this.bots.size()];
+        this.matches = new int[this.bots.size()][this.bots.size()];
+    }
+    
+    /** Adds the score of a match. Matches involving a bot that is not on
+      * the roster, or a bot playing itself, are ignored.
+      * 
+      * @return true if the match was added.
+      */
+    public boolean add(String player1, long wins1, long ties, String player2,
+                       long wins2) {
+        Integer i = this.index.get(player1);
+        Integer j = this.index.get(player2);
+        long n = wins1 + ties + wins2;
+        if (i == null || j == null || i.equals(j) || n == 0)
+            return false;
+        this.rounds[i][j] += n;
+        this.rounds[j][i] += n;
+        double rate = (double)(wins1 - wins2) / n;
+        this.rates[i][j] += rate;
+        this.rates[j][i] -= rate;
+        this.squares[i][j] += rate * rate;
+        this.squares[j][i] += rate * rate;
+        this.matches[i][j]++;
+        this.matches[j][i]++;
+        return true;
+    }
+    
+    /** Adds the score of a completed match; failed matches are ignored. */
+    public boolean add(MatchResult r) {
+        if (r.isFailed())
+            return false;
+        return add(r.getPlayer1(), r.getWins1(), r.getTies(), r.getPlayer2(),
+                   r.getWins2());
+    }
+    
+    /** Adds every line of a results file in the results.txt format.
+      * 
+      * @return the number of matches added.
+      */
+    public int addResults(Path file) throws IOException {
+        int added = 0;
+        for (String line : Files.readAllLines(file)) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length < 6 || !tokens[2].equals("Ties"))
+                continue;
+            try {
+                if (add(tokens[0], Long.parseLong(tokens[1]),
+                        Long.parseLong(tokens[3]), tokens[4],
+                        Long.parseLong(tokens[5])))
+                    added++;
+            }
+            catch (NumberFormatException e) {
+                // Not a result line
+            }
+        }
+        return added;
+    }
+    
+    public int size() {
+        return this.bots.size();
+    }
+    
+    public String getName(int i) {
+        return this.bots.get(i);
+    }
+    
+    /** Returns the number of rounds played between two bots. */
+    public long getRounds(int i, int j) {
+        return this.rounds[i][j];
+    }
+    
+    /** Returns the result per round of bot i against bot j, averaged over
+      * their matches, or 0 if they have not played.
+      */
+    public double getPayoff(int i, int j) {
+        if (this.matches[i][j] == 0)
+            return 0;
+        return this.rates[i][j] / this.matches[i][j];
+    }
+    
+    /** Returns the standard error of getPayoff(i, j), from the spread of
+      * the per-match results, or infinity if the two bots have played fewer
+      * than two matches. A bot's payoff against itself is exact.
+      */
+    public double getStandardError(int i, int j) {
+        if (i == j)
+            return 0;
+        int m = this.matches[i][j];
+        if (m < 2)
+            return Double.POSITIVE_INFINITY;
+        double mean = getPayoff(i, j);
+        double variance = (this.squares[i][j] - m * mean * mean) / (m - 1);
+        return Math.sqrt(Math.max(variance, 0) / m);
+    }
+    
+}
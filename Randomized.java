@@ -0,0 +1,19 @@
+import java.util.SplittableRandom;
+
+/** Declares that a bot's play depends on random draws.
+  * 
+  * The Arbiter hands every such bot its own random stream, split from the
+  * match seed, before the first round. Bots must draw only from that stream
+  * (never Math.random() or a fresh java.util.Random), so that a match can be
+  * reproduced exactly from its seed no matter how many other matches run
+  * alongside it.
+  */
+public interface Randomized {
+    
+    /** Sets the random source this bot draws from for the rest of the match.
+      * 
+      * @param random the bot's random stream.
+      */
+    public void setRandom(SplittableRandom random);
+    
+}
@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/** Program that replays recorded matches against fresh instances of one of
+  * the recorded bots, to check that the bot still makes exactly the
+  * decisions it made when the transcript was written.
+  * 
+  * The opponent's recorded moves are fed to the bot round by round, and the
+  * first round where the bot's move differs from the recording is reported.
+  * Randomized bots are handed the same random stream they had in the
+  * recorded match, derived from the seed in the transcript header.
+  * Transcripts are replayed in parallel on all available cores.
+  */
+public class Replay {
+    
+    /** Outcome of replaying one transcript. */
+    private static class Result {
+        private Path file;
+        private long rounds;     // rounds replayed
+        private long divergence; // first differing round, or -1
+        private Action recorded;
+        private Action played;
+        private String error;    // set if the replay could not be run
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !(args[0].equals("1") || args[0].equals("2"))) {
+            System.out.println("Usage: java Replay <seat> <transcript>...");
+            System.out.println("where <seat>       = 1 or 2, the recorded player to replay.");
+            System.out.println("      <transcript> = a transcript file, or a directory of");
+            System.out.println("                     .rpst transcripts.");
+            System.out.println("Example:");
+            System.out.println("java Replay 1 transcripts/");
+            System.exit(-1);
+        }
+        int seat = Integer.parseInt(args[0]);
+        
+        List<Path> files = new ArrayList<Path>();
+        for (int i = 1; i < args.length; i++) {
+            Path path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                try (DirectoryStream<Path> dir =
+                         Files.newDirectoryStream(path, "*.rpst")) {
+                    for (Path file : dir)
+                        files.add(file);
+                }
+            }
+            else
+                files.add(path);
+        }
+        
+        ForkJoinPool pool =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        List<Result> results = pool.submit(() ->
+            files.parallelStream().map(f -> replay(f, seat))
+                 .collect(Collectors.toList())).get();
+        pool.shutdown();
+        
+        int diverged = 0;
+        int failed = 0;
+        for (Result r : results) {
+            if (r.error != null) {
+                failed++;
+                System.out.println(r.file + ": error: " + r.error);
+            }
+            else if (r.divergence >= 0) {
+                diverged++;
+                System.out.println(r.file + ": diverged at round " +
+                                   r.divergence + " (recorded " + r.recorded +
+                                   ", played " + r.played + ")");
+            }
+            else
+                System.out.println(r.file + ": identical for " + r.rounds +
+                                   " rounds");
+        }
+        System.out.println(results.size() + " transcripts, " + diverged +
+                           " diverged, " + failed + " failed");
+        if (diverged > 0 || failed > 0)
+            System.exit(1);
+    }
+    
+    /** Replays one transcript for the given seat. */
+    private static Result replay(Path file, int seat) {
+        Result result = new Result();
+        result.file = file;
+        result.divergence = -1;
+        try {
+            MatchTranscript transcript = new MatchTranscript(file);
+            String name = (seat == 1) ? transcript.getPlayer1()
+                                      : transcript.getPlayer2();
+            RoShamBot bot = BotRegistry.getDefault().create(name);
+            if (bot instanceof Randomized)
+                ((Randomized)bot).setRandom(
+                    Arbiter.seatRandom(transcript.getSeed(), seat));
+            int opponent = 3 - seat;
+            
+            // As in the Arbiter, the first round pretends the opponent threw
+            // ROCK on the previous round.
+            Action last = Action.ROCK;
+            long rounds = transcript.getRounds();
+            for (long round = 0; round < rounds; round++) {
+                Action played = bot.getNextMove(last);
+                Action recorded = transcript.getAction(seat, round);
+                result.rounds = round + 1;
+                if (played != recorded) {
+                    result.divergence = round;
+                    result.recorded = recorded;
+                    result.played = played;
+                    break;
+                }
+                last = transcript.getAction(opponent, round);
+            }
+        }
+        catch (IOException e) {
+            result.error = e.getMessage();
+        }
+        catch (Exception e) {
+            result.error = e.toString();
+        }
+        return result;
+    }
+    
+}
@@ -0,0 +1,492 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/** An append-only binary file of match results, indexed by bot and by
+  * pairing.
+  * 
+  * The file starts with the magic "RPSR" and a 2-byte format version,
+  * followed by one record per match:
+  * 
+  *   4 bytes  length of the rest of the record, after the checksum
+  *   4 bytes  CRC-32C of the rest of the record
+  *   2 bytes + UTF-8  class name of player 1
+  *   2 bytes + UTF-8  class name of player 2
+  *   8 bytes  match seed
+  *   8 bytes  wins for player 1
+  *   8 bytes  ties
+  *   8 bytes  wins for player 2
+  *   8 bytes  duration in nanoseconds
+  * 
+  * Any number of threads may append at once without locking: each append
+  * reserves its bytes by advancing an atomic end-of-file position and then
+  * writes its record there with a single positional write. The index maps
+  * every bot, and every pairing, to the offsets of its records, so queries
+  * read only the records they return. It is kept in memory, and written
+  * next to the store, as the store's file name plus ".idx", when the store
+  * is closed. Opening a store loads that index and reads only the records
+  * appended after it was written, or every record if there is no usable
+  * index.
+  * 
+  * A crash can leave records incomplete, and since appends run at once,
+  * complete records may follow an incomplete one. When records are read on
+  * opening, bytes that do not hold a record with a matching checksum are
+  * skipped up to the next one that does, so no complete record is lost.
+  * Damaged bytes at the end of the file are cut off.
+  * 
+  * The index file holds the magic "RPSI", the format version, the length
+  * of the store it covers, the number of pairings, and for each pairing
+  * the two class names (2 bytes + UTF-8 each), the number of its records
+  * and their 8-byte offsets.
+  */
+public class ResultStore implements Closeable {
+    
+    public static final int MAGIC = 0x52505352; // "RPSR"
+    public static final int INDEX_MAGIC = 0x52505349; // "RPSI"
+    public static final short VERSION = 2;
+    private static final int HEADER_SIZE = 6;
+    private static final int RECORD_HEADER_SIZE = 8; // length and checksum
+    private static final int MIN_LENGTH = 2 + 1 + 2 + 1 + 5 * 8;
+    private static final int MAX_LENGTH = 2 * (2 + 0xFFFF) + 5 * 8;
+    private static final int SCAN_WINDOW = 64 * 1024;
+    
+    private Path file;
+    private FileChannel channel;
+    private AtomicLong end;
+    private Map<String, Queue<Long>> byBot;
+    private Map<String, Queue<Long>> byPair;
+    private Queue<Long> all;
+    
+    /** Opens a store, creating it if it does not exist.
+      * 
+      * @param file the store file.
+      * @throws IOException if the file cannot be opened or is not a store.
+      */
+    public ResultStore(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                        StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        this.byBot = new ConcurrentHashMap<String, Queue<Long>>();
+        this.byPair = new ConcurrentHashMap<String, Queue<Long>>();
+        this.all = new ConcurrentLinkedQueue<Long>();
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (this.channel.size() == 0) {
+            header.putInt(MAGIC).putShort(VERSION).flip();
+            this.channel.write(header, 0);
+            this.end = new AtomicLong(HEADER_SIZE);
+            return;
+        }
+        this.channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            this.channel.close();
+            throw new IOException(file + " is not a results store");
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            this.channel.close();
+            throw new IOException(file + " has unsupported version " + version);
+        }
+        
+        // Index the records the saved index does not cover, skipping any
+        // that are damaged
+        long size = this.channel.size();
+        long position = loadIndex(size);
+        long skipped = 0;
+        while (position + RECORD_HEADER_SIZE <= size) {
+            ByteBuffer record = readRecord(position, size);
+            if (record == null) {
+                long next = findRecord(position + 1, size);
+                if (next == size)
+                    break;
+                skipped += next - position;
+                position = next;
+                continue;
+            }
+            index(position, getName(record), getName(record));
+            position += RECORD_HEADER_SIZE + record.limit();
+        }
+        if (skipped > 0)
+            System.err.println("ResultStore: skipped " + skipped +
+                               " damaged bytes in " + file + ".");
+        if (position < size)
+            this.channel.truncate(position);
+        this.end = new AtomicLong(position);
+    }
+    
+    /** Reads the record at an offset, or returns null if there is no
+      * complete record with a matching checksum there.
+      */
+    private ByteBuffer readRecord(long position, long size) throws IOException {
+        if (position + RECORD_HEADER_SIZE > size)
+            return null;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(header, position);
+        header.flip();
+        int n = header.getInt();
+        int checksum = header.getInt();
+        if (n < MIN_LENGTH || n > MAX_LENGTH
+                || position + RECORD_HEADER_SIZE + n > size)
+            return null;
+        ByteBuffer record = ByteBuffer.allocate(n);
+        readFully(record, position + RECORD_HEADER_SIZE);
+        if (record.hasRemaining() || checksum(record.array(), 0, n) != checksum)
+            return null;
+        return record.flip();
+    }
+    
+    /** Returns the first offset at or after from that holds a record, or
+      * size if there is none.
+      */
+    private long findRecord(long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(SCAN_WINDOW);
+        // Windows overlap so that every length field lies wholly in one
+        for (long start = from; start + RECORD_HEADER_SIZE <= size;
+             start += SCAN_WINDOW - 3) {
+            window.clear();
+            readFully(window, start);
+            int limit = (int)Math.min(window.position(), size - start);
+            for (int i = 0; i + 4 <= limit; i++) {
+                int n = window.getInt(i);
+                if (n >= MIN_LENGTH && n <= MAX_LENGTH
+                        && readRecord(start + i, size) != null)
+                    return start + i;
+            }
+        }
+        return size;
+    }
+    
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int)crc.getValue();
+    }
+    
+    private Path indexFile() {
+        return this.file.resolveSibling(this.file.getFileName() + ".idx");
+    }
+    
+    /** Loads the saved index, if there is one and it matches the store.
+      * 
+      * @return the length of the store the index covers, or the offset of
+      *         the first record if no index was loaded.
+      */
+    private long loadIndex(long size) {
+        Path indexFile = indexFile();
+        if (!Files.exists(indexFile))
+            return HEADER_SIZE;
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            if (in.getInt() != INDEX_MAGIC || in.getShort() != VERSION)
+                return HEADER_SIZE;
+            long covered = in.getLong();
+            if (covered < HEADER_SIZE || covered > size)
+                return HEADER_SIZE;
+            List<String[]> pairs = new ArrayList<String[]>();
+            List<long[]> offsets = new ArrayList<long[]>();
+            long last = -1;
+            String lastPair = null;
+            for (int p = in.getInt(); p > 0; p--) {
+                String[] pair = { getName(in), getName(in) };
+                long[] positions = new long[in.getInt()];
+                for (int k = 0; k < positions.length; k++) {
+                    positions[k] = in.getLong();
+                    if (positions[k] > last) {
+                        last = positions[k];
+                        lastPair = pairKey(pair[0], pair[1]);
+                    }
+                }
+                pairs.add(pair);
+                offsets.add(positions);
+            }
+            
+            // Check the index belongs to this store by its latest record
+            if (last >= 0) {
+                ByteBuffer record = readRecord(last, covered);
+                if (record == null || !pairKey(getName(record), getName(record))
+                                           .equals(lastPair))
+                    return HEADER_SIZE;
+            }
+            for (int p = 0; p < pairs.size(); p++)
+                for (long position : offsets.get(p))
+                    index(position, pairs.get(p)[0], pairs.get(p)[1]);
+            return covered;
+        }
+        catch (IOException | RuntimeException e) {
+            // A damaged index is rebuilt from the records.
+            return HEADER_SIZE;
+        }
+    }
+    
+    /** Writes the index to its file, replacing the old one in one step. */
+    private void saveIndex() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(INDEX_MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(this.end.get());
+        out.writeInt(this.byPair.size());
+        for (Map.Entry<String, Queue<Long>> e : this.byPair.entrySet()) {
+            for (String name : e.getKey().split(" ")) {
+                byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(utf8.length);
+                out.write(utf8);
+            }
+            List<Long> positions = new ArrayList<Long>(e.getValue());
+            out.writeInt(positions.size());
+            for (long position : positions)
+                out.writeLong(position);
+        }
+        out.flush();
+        
+        Path indexFile = indexFile();
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = this.channel.read(buffer, position);
+            if (read < 0)
+                break;
+            position += read;
+        }
+    }
+    
+    private static String getName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static String pairKey(String bot1, String bot2) {
+        return (bot1.compareTo(bot2) <= 0) ? bot1 + " " + bot2
+                                           : bot2 + " " + bot1;
+    }
+    
+    private void index(long position, String player1, String player2) {
+        this.all.add(position);
+        this.byBot.computeIfAbsent(player1, k -> new ConcurrentLinkedQueue<Long>())
+            .add(position);
+        if (!player2.equals(player1))
+            this.byBot.computeIfAbsent(player2,
+                                       k -> new ConcurrentLinkedQueue<Long>())
+                .add(position);
+        this.byPair.computeIfAbsent(pairKey(player1, player2),
+                                    k -> new ConcurrentLinkedQueue<Long>())
+            .add(position);
+    }
+    
+    /** Appends the result of a completed match. Failed matches are not
+      * stored. Safe to call from any number of threads at once.
+      */
+    public void append(MatchResult r) throws IOException {
+        if (r.isFailed())
+            return;
+        byte[] name1 = r.getPlayer1().getBytes(StandardCharsets.UTF_8);
+        byte[] name2 = r.getPlayer2().getBytes(StandardCharsets.UTF_8);
+        int length = 2 + name1.length + 2 + name2.length + 5 * 8;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        record.putInt(length);
+        record.putInt(0); // checksum, filled in below
+        record.putShort((short)name1.length).put(name1);
+        record.putShort((short)name2.length).put(name2);
+        record.putLong(r.getSeed());
+        record.putLong(r.getWins1());
+        record.putLong(r.getTies());
+        record.putLong(r.getWins2());
+        record.putLong(r.getDurationNanos());
+        record.putInt(4, checksum(record.array(), RECORD_HEADER_SIZE, length));
+        record.flip();
+        
+        long position = this.end.getAndAdd(record.remaining());
+        long at = position;
+        while (record.hasRemaining())
+            at += this.channel.write(record, at);
+        index(position, r.getPlayer1(), r.getPlayer2());
+    }
+    
+    private MatchResult read(long position) throws IOException {
+        ByteBuffer record = readRecord(position, this.end.get());
+        if (record == null)
+            throw new IOException(this.file + " has a damaged record at " +
+                                  position + "; delete " + indexFile() +
+                                  " to skip it");
+        String player1 = getName(record);
+        String player2 = getName(record);
+        long seed = record.getLong();
+        long[] score = { record.getLong(), record.getLong(), record.getLong() };
+        return new MatchResult(player1, player2, seed, score, record.getLong());
+    }
+    
+    private List<MatchResult> read(Queue<Long> positions) throws IOException {
+        List<MatchResult> results = new ArrayList<MatchResult>();
+        if (positions == null)
+            return results;
+        List<Long> sorted = new ArrayList<Long>(positions);
+        Collections.sort(sorted);
+        for (long position : sorted)
+            results.add(read(position));
+        return results;
+    }
+    
+    /** Returns every stored result, in file order. */
+    public List<MatchResult> getResults() throws IOException {
+        return read(this.all);
+    }
+    
+    /** Returns the results of every match a bot played, in file order. */
+    public List<MatchResult> getResults(String bot) throws IOException {
+        return read(this.byBot.get(bot));
+    }
+    
+    /** Returns the results of every match between two bots, whichever seat
+      * each played in, in file order.
+      */
+    public List<MatchResult> getResults(String bot1, String bot2)
+        throws IOException {
+        return read(this.byPair.get(pairKey(bot1, bot2)));
+    }
+    
+    /** Returns the names of every bot with a stored result. */
+    public List<String> getBots() {
+        return new ArrayList<String>(new TreeSet<String>(this.byBot.keySet()));
+    }
+    
+    /** Returns the number of stored results. */
+    public int size() {
+        return this.all.size();
+    }
+    
+    /** Writes every result in the results.txt line format. */
+    public void exportText(Writer out) throws IOException {
+        PrintWriter writer = new PrintWriter(out);
+        for (MatchResult r : getResults())
+            writer.println(r.toResultLine());
+        writer.flush();
+    }
+    
+    /** Writes the league table of every stored result as CSV, best margin
+      * per round first.
+      */
+    public void exportCsv(Writer out) throws IOException {
+        Map<String, League.Standing> table =
+            new LinkedHashMap<String, League.Standing>();
+        for (String bot : getBots())
+            table.put(bot, new League.Standing(bot));
+        for (MatchResult r : getResults()) {
+            League.Standing s1 = table.get(r.getPlayer1());
+            League.Standing s2 = table.get(r.getPlayer2());
+            s1.add(r.getWins1(), r.getTies(), r.getWins2());
+            s2.add(r.getWins2(), r.getTies(), r.getWins1());
+        }
+        List<League.Standing> standings =
+            new ArrayList<League.Standing>(table.values());
+        Collections.sort(standings, Comparator.comparingDouble(
+                             League.Standing::marginPerRound).reversed());
+        
+        PrintWriter writer = new PrintWriter(out);
+        writer.println("Pos,Bot,Played,Wins,Ties,Losses,Margin,MarginPerRound");
+        int pos = 1;
+        for (League.Standing s : standings)
+            writer.println(pos++ + "," + s.name + "," + s.played + "," +
+                           s.wins + "," + s.ties + "," + s.losses + "," +
+                           s.margin() + "," + s.marginPerRound());
+        writer.flush();
+    }
+    
+    /** Forces every appended result to disk, saves the index and closes
+      * the store. No appends may be under way.
+      */
+    public void close() throws IOException {
+        this.channel.force(true);
+        this.channel.close();
+        saveIndex();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java ResultStore <store> <command>");
+            System.out.println("where <command> is one of:");
+            System.out.println("      -import <results> = append the lines of a results file.");
+            System.out.println("      -text <file>   = export every result in results.txt format.");
+            System.out.println("      -csv <file>    = export the league table as CSV.");
+            System.out.println("      -bot <name>    = print every result of one bot.");
+            System.out.println("      -pair <name> <name> = print every result of one pairing.");
+            System.out.println("Example:");
+            System.out.println("java ResultStore league.rpsr -csv table.csv");
+            System.exit(-1);
+        }
+        
+        try (ResultStore store = new ResultStore(Paths.get(args[0]))) {
+            String command = args[1];
+            if (args.length < 3 || (command.equals("-pair") && args.length < 4)) {
+                System.out.println("Error: missing value for " + command + ".");
+                System.exit(-1);
+            }
+            if (command.equals("-import")) {
+                int before = store.size();
+                for (String line : Files.readAllLines(Paths.get(args[2]))) {
+                    String[] tokens = line.trim().split("\\s+");
+                    if (tokens.length < 6 || !tokens[2].equals("Ties"))
+                        continue;
+                    long[] score = { Long.parseLong(tokens[1]),
+                                     Long.parseLong(tokens[3]),
+                                     Long.parseLong(tokens[5]) };
+                    store.append(new MatchResult(tokens[0], tokens[4], 0,
+                                                 score, 0));
+                }
+                System.out.println("Imported " + (store.size() - before) +
+                                   " results.");
+            }
+            else if (command.equals("-text") || command.equals("-csv")) {
+                try (Writer out = Files.newBufferedWriter(Paths.get(args[2]))) {
+                    if (command.equals("-text"))
+                        store.exportText(out);
+                    else
+                        store.exportCsv(out);
+                }
+            }
+            else if (command.equals("-bot")) {
+                for (MatchResult r : store.getResults(args[2]))
+                    System.out.println(r.toResultLine());
+            }
+            else if (command.equals("-pair")) {
+                for (MatchResult r : store.getResults(args[2], args[3]))
+                    System.out.println(r.toResultLine());
+            }
+            else {
+                System.out.println("Error: unknown command " + command + ".");
+                System.exit(-1);
+            }
+        }
+    }
+    
+}
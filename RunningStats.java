@@ -0,0 +1,63 @@
+/** Streaming mean and variance of a series of values, using Welford's
+  * update so that no individual value has to be kept. Two sets of stats can
+  * be merged, which lets parallel workers each keep their own and combine
+  * them at the end.
+  */
+public class RunningStats {
+    
+    private long count;
+    private double mean;
+    private double m2; // sum of squared differences from the mean
+    
+    /** Adds one value. */
+    public void add(double x) {
+        this.count++;
+        double delta = x - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (x - this.mean);
+    }
+    
+    /** Folds another set of stats into this one. */
+    public void merge(RunningStats other) {
+        if (other.count == 0)
+            return;
+        if (this.count == 0) {
+            this.count = other.count;
+            this.mean = other.mean;
+            this.m2 = other.m2;
+            return;
+        }
+        long total = this.count + other.count;
+        double delta = other.mean - this.mean;
+        this.mean += delta * other.count / total;
+        this.m2 += other.m2 + delta * delta * this.count * other.count / total;
+        this.count = total;
+    }
+    
+    public long getCount() {
+        return this.count;
+    }
+    
+    public double getMean() {
+        return this.mean;
+    }
+    
+    /** Returns the sample variance, or 0 for fewer than two values. */
+    public double getVariance() {
+        return (this.count > 1) ? this.m2 / (this.count - 1) : 0;
+    }
+    
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+    
+    /** Returns the half-width of a normal-approximation confidence interval
+      * for the mean.
+      * 
+      * @param z the critical value, e.g. 1.96 for 95% confidence.
+      */
+    public double getMarginOfError(double z) {
+        return (this.count > 0) ? z * Math.sqrt(getVariance() / this.count) : 0;
+    }
+    
+}
@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/** The running score of a match, sampled at geometrically spaced rounds so
+  * that a match of any length is described in a few hundred points.
+  * 
+  * Checkpoints follow the same scheme as the buckets of LatencyHistogram:
+  * every round up to 16, then 8 equally spaced rounds in every power of two
+  * (16, 18, ..., 30, 32, 36, ...), so consecutive checkpoints are never more
+  * than 12.5% apart. The score after the latest round is kept as well.
+  */
+public class ScoreTrajectory {
+    
+    private static final int SUB_BITS = 3;
+    private static final int CAPACITY = 64 << SUB_BITS;
+    
+    private long[] rounds;
+    private long[] wins1;
+    private long[] ties;
+    private long[] wins2;
+    private int size;
+    private long next;
+    private long[] last; // round, wins for player 1, ties, wins for player 2
+    
+    public ScoreTrajectory() {
+        this.rounds = new long[CAPACITY];
+        this.wins1 = new long[CAPACITY];
+        this.ties = new long[CAPACITY];
+        this.wins2 = new long[CAPACITY];
+        this.next = 1;
+        this.last = new long[4];
+    }
+    
+    /** Returns the checkpoint that follows a given one. */
+    static long following(long checkpoint) {
+        int exponent = 63 - Long.numberOfLeadingZeros(checkpoint);
+        long step = 1L << Math.max(exponent - SUB_BITS, 0);
+        return (checkpoint > Long.MAX_VALUE - step) ? Long.MAX_VALUE
+                                                    : checkpoint + step;
+    }
+    
+    /** Returns the round at which the next score should be recorded. */
+    public long getNextCheckpoint() {
+        return this.next;
+    }
+    
+    /** Records the score after the given round. Rounds before the next
+      * checkpoint only update the latest score.
+      * 
+      * @param round the number of rounds played.
+      * @param score wins for player 1, ties and wins for player 2.
+      */
+    public void record(long round, long[] score) {
+        this.last[0] = round;
+        this.last[1] = score[0];
+        this.last[2] = score[1];
+        this.last[3] = score[2];
+        if (round < this.next)
+            return;
+        this.rounds[this.size] = round;
+        this.wins1[this.size] = score[0];
+        this.ties[this.size] = score[1];
+        this.wins2[this.size] = score[2];
+        this.size++;
+        while (this.next <= round && this.next != Long.MAX_VALUE)
+            this.next = following(this.next);
+    }
+    
+    /** Returns the number of points, including the latest score if it fell
+      * between checkpoints.
+      */
+    public int size() {
+        boolean extra = this.last[0] > 0
+            && (this.size == 0 || this.rounds[this.size - 1] < this.last[0]);
+        return this.size + (extra ? 1 : 0);
+    }
+    
+    /** Returns the round of a point. */
+    public long getRound(int i) {
+        return (i < this.size) ? this.rounds[i] : this.last[0];
+    }
+    
+    /** Returns player 1's wins up to the round of a point. */
+    public long getWins1(int i) {
+        return (i < this.size) ? this.wins1[i] : this.last[1];
+    }
+    
+    /** Returns the ties up to the round of a point. */
+    public long getTies(int i) {
+        return (i < this.size) ? this.ties[i] : this.last[2];
+    }
+    
+    /** Returns player 2's wins up to the round of a point. */
+    public long getWins2(int i) {
+        return (i < this.size) ? this.wins2[i] : this.last[3];
+    }
+    
+    /** Writes the points as whitespace-separated columns, one per line,
+      * under a header naming the players.
+      * 
+      * @param out where to write.
+      * @param player1 name of the first bot.
+      * @param player2 name of the second bot.
+      */
+    public void write(Writer out, String player1, String player2)
+            throws IOException {
+        out.write("# Round " + player1 + " Ties " + player2 + "\n");
+        for (int i = 0; i < size(); i++)
+            out.write(getRound(i) + " " + getWins1(i) + " " + getTies(i) + " "
+                      + getWins2(i) + "\n");
+        out.flush();
+    }
+    
+}
@@ -0,0 +1,19 @@
+/** Declares that a bot's whole state can be copied, so that a match can be
+  * played up to some round once and then forked into many continuations.
+  * 
+  * A copy must share nothing mutable with the original: playing either one
+  * must leave the other unchanged. Bots that remember the moves played keep
+  * them in a MoveHistory, whose copy shares every full chunk with the
+  * original and copies only the last one, so a fork of a long prefix costs
+  * little more than a fork of a short one. WolfBot is the exception: its
+  * pattern tables are boxed maps that a copy rebuilds entry by entry, in
+  * time and memory proportional to the patterns it has seen.
+  * A copy does not continue the original's random stream; like a fresh bot
+  * it waits to be handed one, which Arbiter.fork does from the fork's seed.
+  */
+public interface Snapshottable extends RoShamBot {
+    
+    /** Returns an independent bot in the same state as this one. */
+    public Snapshottable copy();
+    
+}
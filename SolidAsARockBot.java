@@ -3,8 +3,13 @@
   * 
   * @author RR
   */
-public class SolidAsARockBot implements RoShamBot {
+public class SolidAsARockBot implements RoShamBot, Snapshottable {
  
+    /** Returns a new SolidAsARockBot; the bot keeps no state. */
+    public SolidAsARockBot copy() {
+        return new SolidAsARockBot();
+    }
+    
     /** Plays the pure strategy Rock.
       * 
       * @param lastOpponentMove the action that was played by the opponent on
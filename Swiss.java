@@ -0,0 +1,273 @@
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/** Program that ranks the bots on a roster with a Swiss-system tournament,
+  * for rosters too large for a round robin.
+  * 
+  * Each stage pairs bots with similar scores so far, without repeating a
+  * pairing, and plays that stage's matches in parallel. A match is worth 1
+  * point to the bot that won more rounds and half a point each if they won
+  * the same number; with an odd roster, the lowest-placed bot that has not
+  * yet sat out gets a bye worth half a point. Bots are ranked by points,
+  * then by the points of the opponents they met (the Buchholz score), then
+  * by win margin. About log2(n) stages rank n bots, so the tournament plays
+  * O(n log n) matches instead of the n(n-1)/2 of a round robin.
+  */
+public class Swiss {
+    
+    /** Running totals for one bot in the Swiss table. */
+    static class Entrant {
+        String name;
+        double points;
+        double buchholz;
+        long wins;
+        long ties;
+        long losses;
+        int failed;
+        boolean bye;
+        double tiebreak; // random, to order bots nothing else separates
+        Set<String> opponents = new HashSet<String>();
+        
+        Entrant(String name, double tiebreak) {
+            this.name = name;
+            this.tiebreak = tiebreak;
+        }
+        
+        long margin() {
+            return this.wins - this.losses;
+        }
+    }
+    
+    /** Orders entrants best first. */
+    static final Comparator<Entrant> RANKING =
+        Comparator.comparingDouble((Entrant e) -> e.points)
+                  .thenComparingDouble(e -> e.buchholz)
+                  .thenComparingLong(Entrant::margin)
+                  .thenComparingDouble(e -> e.tiebreak)
+                  .reversed();
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java Swiss <n> <roster> [options]");
+            System.out.println("where <n>      = number of rounds per match.");
+            System.out.println("      <roster> = file listing one bot class name per line,");
+            System.out.println("                 or a results file to take the bots from.");
+            System.out.println("Options:");
+            System.out.println("      -stages <s>    = Swiss rounds to play (default log2 of the");
+            System.out.println("                       roster size, rounded up, plus 2).");
+            System.out.println("      -out <file>    = results file to write (default swiss.txt).");
+            System.out.println("      -seed <seed>   = tournament seed (default random).");
+            System.out.println("      -threads <t>   = parallel matches (default number of cores).");
+            System.out.println("      -compare       = also play the full round robin and report");
+            System.out.println("                       how far the Swiss ranking is from it.");
+            System.out.println("Example:");
+            System.out.println("java Swiss 10000 roster.txt -seed 1");
+            System.exit(-1);
+        }
+        
+        long numRounds = Long.parseLong(args[0]);
+        List<String> roster = League.usable(League.readRoster(Paths.get(args[1])));
+        int stages = 0;
+        Path out = Paths.get("swiss.txt");
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean compare = false;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-compare")) {
+                compare = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-stages"))
+                stages = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-out"))
+                out = Paths.get(args[++i]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        if (roster.size() < 2) {
+            System.out.println("Error: fewer than two usable bots on the roster.");
+            System.exit(-1);
+        }
+        if (stages <= 0)
+            stages = defaultStages(roster.size());
+        stages = Math.min(stages, roster.size() - 1);
+        
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Entrant> table = new ArrayList<Entrant>();
+        for (String name : roster)
+            table.add(new Entrant(name, random.nextDouble()));
+        List<MatchResult> results = new ArrayList<MatchResult>();
+        for (int stage = 0; stage < stages; stage++) {
+            List<Match> matches = pair(table, numRounds, random);
+            List<MatchResult> played = League.play(matches, threads);
+            score(table, played);
+            results.addAll(played);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        try (PrintWriter writer =
+                 new PrintWriter(Files.newBufferedWriter(out))) {
+            for (MatchResult r : results) {
+                if (r.isFailed())
+                    System.err.println("Error: " + r);
+                else
+                    writer.println(r.toResultLine());
+            }
+        }
+        
+        List<Entrant> ranking = new ArrayList<Entrant>(table);
+        Collections.sort(ranking, RANKING);
+        System.out.printf("%d matches in %d stages (%.1f s on %d threads), " +
+                          "seed %d%n", results.size(), stages, seconds,
+                          threads, seed);
+        printTable(ranking);
+        
+        if (compare) {
+            List<MatchResult> full =
+                League.play(League.pairings(roster, numRounds, seed), threads);
+            List<Entrant> reference = new ArrayList<Entrant>();
+            for (Entrant e : table)
+                reference.add(new Entrant(e.name, e.tiebreak));
+            score(reference, full);
+            Collections.sort(reference, RANKING);
+            compare(ranking, reference, full.size());
+        }
+    }
+    
+    /** Returns the default number of stages for a roster: enough to pick
+      * out a single winner by halving, plus two to settle the places below.
+      */
+    static int defaultStages(int bots) {
+        return 32 - Integer.numberOfLeadingZeros(bots - 1) + 2;
+    }
+    
+    /** Pairs the bots for the next stage. Bots are taken best first, and
+      * each is paired with the next-best bot it has not already met; if it
+      * has met every bot left, with the next-best bot regardless. With an
+      * odd number of bots, the lowest-placed bot without a bye sits out.
+      */
+    static List<Match> pair(List<Entrant> table, long numRounds,
+                            SplittableRandom seeds) {
+        List<Entrant> order = new ArrayList<Entrant>(table);
+        Collections.sort(order, RANKING);
+        if (order.size() % 2 == 1) {
+            int bye = order.size() - 1;
+            while (bye > 0 && order.get(bye).bye)
+                bye--;
+            Entrant e = order.remove(bye);
+            e.bye = true;
+            e.points += 0.5;
+        }
+        
+        List<Match> matches = new ArrayList<Match>();
+        while (!order.isEmpty()) {
+            Entrant e = order.remove(0);
+            int j = 0;
+            while (j < order.size() && e.opponents.contains(order.get(j).name))
+                j++;
+            Entrant opponent = order.remove((j < order.size()) ? j : 0);
+            matches.add(new Match(e.name, opponent.name, numRounds,
+                                  seeds.nextLong()));
+        }
+        return matches;
+    }
+    
+    /** Adds a stage's results to the table and recomputes every bot's
+      * Buchholz score.
+      */
+    static void score(List<Entrant> table, List<MatchResult> results) {
+        Map<String, Entrant> byName = new HashMap<String, Entrant>();
+        for (Entrant e : table)
+            byName.put(e.name, e);
+        for (MatchResult r : results) {
+            Entrant e1 = byName.get(r.getPlayer1());
+            Entrant e2 = byName.get(r.getPlayer2());
+            e1.opponents.add(e2.name);
+            e2.opponents.add(e1.name);
+            if (r.isFailed()) {
+                e1.failed++;
+                e2.failed++;
+                continue;
+            }
+            if (r.getWins1() > r.getWins2())
+                e1.points += 1;
+            else if (r.getWins1() < r.getWins2())
+                e2.points += 1;
+            else {
+                e1.points += 0.5;
+                e2.points += 0.5;
+            }
+            e1.wins += r.getWins1();
+            e1.ties += r.getTies();
+            e1.losses += r.getWins2();
+            e2.wins += r.getWins2();
+            e2.ties += r.getTies();
+            e2.losses += r.getWins1();
+        }
+        for (Entrant e : table) {
+            e.buchholz = 0;
+            for (String name : e.opponents)
+                e.buchholz += byName.get(name).points;
+        }
+    }
+    
+    static void printTable(List<Entrant> ranking) {
+        System.out.printf("%-4s %-24s %6s %8s %10s %10s %10s %10s%n", "Pos",
+                          "Bot", "Points", "Buchholz", "Wins", "Ties",
+                          "Losses", "Margin");
+        int pos = 1;
+        for (Entrant e : ranking)
+            System.out.printf("%-4d %-24s %6.1f %8.1f %10d %10d %10d %10d%s%n",
+                              pos++, e.name, e.points, e.buchholz, e.wins,
+                              e.ties, e.losses, e.margin(),
+                              (e.failed > 0) ? "  (" + e.failed + " failed)" : "");
+    }
+    
+    /** Prints how closely the Swiss ranking follows a round robin ranking:
+      * Spearman's rank correlation and the mean and largest number of places
+      * a bot moved.
+      */
+    static void compare(List<Entrant> swiss, List<Entrant> reference,
+                        int matches) {
+        Map<String, Integer> place = new HashMap<String, Integer>();
+        for (int i = 0; i < reference.size(); i++)
+            place.put(reference.get(i).name, i);
+        long n = swiss.size();
+        double squares = 0;
+        long total = 0;
+        int largest = 0;
+        for (int i = 0; i < swiss.size(); i++) {
+            int moved = Math.abs(i - place.get(swiss.get(i).name));
+            squares += (double)moved * moved;
+            total += moved;
+            largest = Math.max(largest, moved);
+        }
+        double spearman = 1 - 6 * squares / (n * (n * n - 1));
+        System.out.printf("Round robin: %d matches; Spearman %.3f, mean %.2f " +
+                          "and largest %d places from its ranking%n", matches,
+                          spearman, (double)total / n, largest);
+    }
+    
+}
@@ -10,11 +10,13 @@ import java.util.*;
 // the current algorithm will let the opponent win if they guess correctly, we switch 
 // algorithms to change it up so their algorithm stops being accurate.
 
-public class TotallyNotACheaterBot implements RoShamBot {
+public class TotallyNotACheaterBot implements RoShamBot, Randomized {
 
 	public List<Action> myHist;
 	public List<Action> opHist;
 
+	private SplittableRandom random;
+
 
 
 	private static final List<Action> MOVES = 
@@ -31,6 +33,19 @@ public class TotallyNotACheaterBot implements RoShamBot {
 	public TotallyNotACheaterBot() {
 		myHist = new ArrayList<Action>();
 		opHist = new ArrayList<Action>();
+		random = new SplittableRandom();
+	}
+
+	/** Sets the random source the bot draws its moves from.
+	  *
+	  *	Parameters:
+	  * @param random - SplittableRandom - the bot's random stream
+	  *
+	  * Returns:
+	  * 	None
+	  */
+	public void setRandom(SplittableRandom random) {
+		this.random = random;
 	}
 
 	/** Returns the bot's next move.
@@ -45,11 +60,10 @@ public class TotallyNotACheaterBot implements RoShamBot {
 
 		opHist.add(lastOpponentMove);
 
-		Random randIntGen = new Random();
 		// Action myMove = MOVES.get(randIntGen.nextInt(3));
 
 		if (opHist.size() < 3) {
-			return MOVES.get(randIntGen.nextInt(3));
+			return MOVES.get(random.nextInt(3));
 		}
 
 		Action myMove = lookBack(5, 500);
@@ -100,15 +114,14 @@ public class TotallyNotACheaterBot implements RoShamBot {
 			index = Collections.indexOfSubList(recentHist, recent);
 		}
 
-		Random randIntGen = new Random();
 
 		// System.out.println(mostLikely.size());
 
 		if (mostLikely.size() > 0) {
 			//System.out.println("Choosing smart.");
-			return beatThis(mostLikely.get(randIntGen.nextInt(mostLikely.size())));
+			return beatThis(mostLikely.get(random.nextInt(mostLikely.size())));
 		} else {
-			return MOVES.get(randIntGen.nextInt(3));
+			return MOVES.get(random.nextInt(3));
 		}
 	}
 
@@ -1,3 +1,10 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /** Program that runs a Rock-Paper-Scissors tournament between the two named
   * players.
@@ -5,37 +12,143 @@
   * @author RR
   */
 public class Tournament {
+    
+    /** Rounds in the first chunk of a match run without early stopping. */
+    private static final long FIRST_CHUNK = 10000;
+    
+    /** Wall time each chunk aims for, so progress and cancel stay prompt. */
+    private static final long CHUNK_NANOS = 250_000_000L;
+    
+    /** How long a shutdown waits for the partial scores to be printed. */
+    private static final long CANCEL_WAIT_SECONDS = 10;
+    
+    private static volatile boolean cancelled = false;
  
     public static void main(String[] args) {
-        if (args.length != 3) {
-            System.out.println("Usage: java Tournament <player1> <player2> <n>");
+        if (args.length < 3) {
+            System.out.println("Usage: java Tournament <player1> <player2> <n> [options]");
             System.out.println("where <player1> = class name of first bot.");
             System.out.println("      <player2> = class name of second bot.");
             System.out.println("      <n>       = number of rounds to play.");
+            System.out.println("Options:");
+            System.out.println("      -record <file> = write a binary transcript of the match.");
+            System.out.println("      -seed <seed>   = seed for the bots' random choices.");
+            System.out.println("      -stop <k>      = check every k rounds and stop once the");
+            System.out.println("                       result is statistically decided.");
+            System.out.println("      -latency       = report percentiles of each bot's move time.");
+            System.out.println("      -alloc         = report the bytes each bot allocates per move.");
+            System.out.println("      -deadline <ms> = time allowed per move; a random move is");
+            System.out.println("                       played for a bot that takes longer.");
+            System.out.println("      -violations <v> = missed deadlines that forfeit the match");
+            System.out.println("                       (default 10).");
+            System.out.println("      -trajectory <file> = write the score at geometrically spaced");
+            System.out.println("                       rounds, for plotting how it develops.");
+            System.out.println("      -progress <s>  = report rounds/sec and time left every s seconds.");
+            System.out.println("Interrupting a match (Ctrl-C) prints the scores so far.");
             System.out.println("Example:");
             System.out.println("java Tournament NashBot MixedBot 10000");
+            System.exit(-1);
         }
         
         // Determine number of rounds to run
-        int numRounds = 0;
+        long numRounds = 0;
         try {
-            numRounds = Integer.parseInt(args[2]);
+            numRounds = Long.parseLong(args[2]);
         }
         catch (Exception e) {
             System.out.println("Error: invalid value for num rounds.");
             System.exit(-1);
         }
         
+        // Read options
+        String transcript = null;
+        String trajectory = null;
+        Long seed = null;
+        EarlyStop stop = null;
+        boolean latency = false;
+        boolean alloc = false;
+        double deadlineMillis = 0;
+        int maxViolations = 10;
+        double progressSeconds = 0;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].equals("-latency")) {
+                latency = true;
+                continue;
+            }
+            if (args[i].equals("-alloc")) {
+                alloc = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-record"))
+                transcript = args[++i];
+            else if (args[i].equals("-trajectory"))
+                trajectory = args[++i];
+            else if (args[i].equals("-stop")) {
+                try {
+                    stop = new EarlyStop(Integer.parseInt(args[++i]));
+                }
+                catch (IllegalArgumentException e) {
+                    System.out.println("Error: invalid value for stop interval.");
+                    System.exit(-1);
+                }
+            }
+            else if (args[i].equals("-deadline")) {
+                try {
+                    deadlineMillis = Double.parseDouble(args[++i]);
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Error: invalid value for deadline.");
+                    System.exit(-1);
+                }
+            }
+            else if (args[i].equals("-violations")) {
+                try {
+                    maxViolations = Integer.parseInt(args[++i]);
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Error: invalid value for violations.");
+                    System.exit(-1);
+                }
+            }
+            else if (args[i].equals("-progress")) {
+                try {
+                    progressSeconds = Double.parseDouble(args[++i]);
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Error: invalid value for progress interval.");
+                    System.exit(-1);
+                }
+            }
+            else if (args[i].equals("-seed")) {
+                try {
+                    seed = Long.parseLong(args[++i]);
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Error: invalid value for seed.");
+                    System.exit(-1);
+                }
+            }
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        
         // Instantiate players
         RoShamBot player1 = null;
         RoShamBot player2 = null;
         try {
-            player1 = (RoShamBot)Class.forName(args[0]).newInstance();
-            player2 = (RoShamBot)Class.forName(args[1]).newInstance();
+            BotRegistry bots = BotRegistry.getDefault();
+            player1 = bots.create(args[0]);
+            player2 = bots.create(args[1]);
         }
-        catch (Exception e) {
+        catch (IllegalArgumentException e) {
             System.out.println("Error: one or more named bots could not be " +
-                               "loaded.");
+                               "loaded (" + e.getMessage() + ").");
             System.out.println("Double check that your bots have been compiled" +
                                " and that the .class files are in the current" +
                                " directory.");
@@ -43,15 +156,168 @@ public class Tournament {
         }
         
         // Run tournament
-        Arbiter judge = new Arbiter(player1, player2);
-        for (int i = 0; i < numRounds; i++)
-            judge.runRound();
+        Arbiter judge = (seed == null) ? new Arbiter(player1, player2)
+                                       : new Arbiter(player1, player2, seed);
+        if (latency)
+            judge.enableLatencyTracking();
+        if (alloc) {
+            try {
+                judge.enableAllocationTracking();
+            }
+            catch (UnsupportedOperationException e) {
+                System.out.println("Error: " + e.getMessage() + ".");
+                System.exit(-1);
+            }
+        }
+        if (deadlineMillis > 0)
+            judge.setMoveDeadline((long)(deadlineMillis * 1e6), maxViolations);
+        if (trajectory != null)
+            judge.enableScoreTrajectory();
+        
+        // On Ctrl-C, stop after the current chunk and hold the JVM open
+        // until the partial scores below have been printed
+        CountDownLatch printed = new CountDownLatch(1);
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            cancelled = true;
+            try {
+                if (mainThread.isAlive())
+                    printed.await(CANCEL_WAIT_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        
+        MatchRecorder recorder = null;
+        boolean failed = false;
+        try {
+            if (transcript != null) {
+                recorder = new MatchRecorder(Paths.get(transcript), args[0],
+                                             args[1], judge.getSeed());
+                judge.setRecorder(recorder);
+            }
+            play(judge, numRounds, stop, (long)(progressSeconds * 1e9));
+            if (recorder != null)
+                recorder.close();
+        }
+        catch (IOException | UncheckedIOException e) {
+            System.out.println("Error: could not write transcript " +
+                               transcript + ": " + e.getMessage());
+            failed = true;
+        }
+        finally {
+            judge.close();
+        }
+        if (failed) {
+            printed.countDown();
+            System.exit(-1);
+        }
         
         // Print scores
-        int[] scores = judge.getCurrentScore();
+        long roundsPlayed = judge.getRoundsCompleted();
+        long[] scores = judge.getScore();
         System.out.println(args[0] + ": " + scores[0]);
         System.out.println("Ties: " + scores[1]);
         System.out.println(args[1] + ": " + scores[2]);
+        if (cancelled)
+            System.out.println("Cancelled after " + roundsPlayed + " of " +
+                               numRounds + " rounds.");
+        else if (stop != null)
+            System.out.println("Rounds played: " + roundsPlayed + " of " +
+                               numRounds);
+        if (deadlineMillis > 0) {
+            System.out.println(args[0] + " missed deadlines: " +
+                               judge.getViolations(1));
+            System.out.println(args[1] + " missed deadlines: " +
+                               judge.getViolations(2));
+            if (judge.getForfeit() != 0)
+                System.out.println(args[judge.getForfeit() - 1] +
+                                   " forfeited after " + roundsPlayed +
+                                   " rounds.");
+            int leaked = DeadlineBot.getLeakedThreads();
+            if (leaked > 0)
+                System.out.println("Move threads still running after the " +
+                                   "match: " + leaked);
+        }
+        if (alloc) {
+            long moves = Math.max(1, judge.getMeteredRounds());
+            for (int seat = 1; seat <= 2; seat++)
+                System.out.printf("%s allocation: %,d bytes, %,.1f bytes/move%n",
+                                  args[seat - 1], judge.getAllocatedBytes(seat),
+                                  (double)judge.getAllocatedBytes(seat) / moves);
+        }
+        if (latency) {
+            System.out.println(args[0] + " move time: " +
+                               judge.getLatency(1).summary());
+            System.out.println(args[1] + " move time: " +
+                               judge.getLatency(2).summary());
+        }
+        if (trajectory != null) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(trajectory))) {
+                judge.getTrajectory().write(out, args[0], args[1]);
+            }
+            catch (IOException e) {
+                System.out.println("Error: could not write trajectory " +
+                                   trajectory + ": " + e.getMessage());
+            }
+        }
+        printed.countDown();
+    }
+    
+    /** Plays the match in chunks, so that progress can be reported and a
+      * cancel honoured without slowing the rounds themselves. Without an
+      * early-stopping rule the chunks grow or shrink to take about a quarter
+      * of a second each; with one they are a single check interval, so the
+      * rule sees exactly the scores runUntilDecided would show it.
+      * 
+      * @param judge the arbiter running the match.
+      * @param numRounds the most rounds to play.
+      * @param stop the early-stopping rule, or null to play every round.
+      * @param progressNanos time between progress reports, or 0 for none.
+      */
+    private static void play(Arbiter judge, long numRounds, EarlyStop stop,
+                             long progressNanos) {
+        long chunk = (stop == null) ? FIRST_CHUNK : stop.getCheckInterval();
+        long start = System.nanoTime();
+        long nextReport = start + progressNanos;
+        long played = 0;
+        while (played < numRounds && !cancelled && judge.getForfeit() == 0) {
+            long batch = Math.min(chunk, numRounds - played);
+            long before = System.nanoTime();
+            judge.runRounds(batch);
+            long now = System.nanoTime();
+            played = judge.getRoundsCompleted();
+            if (stop != null) {
+                if (stop.isDecided(judge.getScore(), numRounds))
+                    break;
+            }
+            else if (now - before < CHUNK_NANOS / 2)
+                chunk = Math.min(chunk * 2, 1L << 40);
+            else if (now - before > CHUNK_NANOS * 2)
+                chunk = Math.max(chunk / 2, 1);
+            if (progressNanos > 0 && now - nextReport >= 0) {
+                reportProgress(played, numRounds, now - start);
+                nextReport = now + progressNanos;
+            }
+        }
+    }
+    
+    /** Prints how far the match has got, its speed so far and the time
+      * left at that speed, to standard error so results stay clean.
+      */
+    private static void reportProgress(long played, long numRounds,
+                                       long elapsedNanos) {
+        double perSecond = played / (elapsedNanos / 1e9);
+        String eta = "unknown";
+        if (perSecond > 0) {
+            long seconds = (long)((numRounds - played) / perSecond);
+            eta = String.format("%dh %02dm %02ds", seconds / 3600,
+                                seconds / 60 % 60, seconds % 60);
+        }
+        System.err.printf("Progress: %,d of %,d rounds (%.1f%%), %,.0f rounds/sec, "
+                          + "ETA %s%n", played, numRounds,
+                          100.0 * played / numRounds, perSecond, eta);
     }
     
-}
\ No newline at end of file
+}
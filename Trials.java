@@ -0,0 +1,138 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/** Program that plays many independent matches between the same two bots
+  * inside one JVM, in parallel, and reports the average result.
+  * 
+  * This replaces rps_bot_analyzer.py, which started a new JVM for every
+  * match. It prints the same averages and margin of victory, plus the
+  * spread of each figure across trials. Trial results are folded into
+  * running statistics as they finish rather than stored.
+  */
+public class Trials {
+    
+    private static final double Z_95 = 1.959964;
+    
+    /** Per-worker statistics over the trials it has played. */
+    private static class Totals {
+        RunningStats wins1 = new RunningStats();
+        RunningStats ties = new RunningStats();
+        RunningStats wins2 = new RunningStats();
+        RunningStats margin = new RunningStats();
+        long failed;
+        String firstError;
+        
+        void add(MatchResult r) {
+            if (r.isFailed()) {
+                if (this.failed++ == 0)
+                    this.firstError = r.getError();
+                return;
+            }
+            this.wins1.add(r.getWins1());
+            this.ties.add(r.getTies());
+            this.wins2.add(r.getWins2());
+            this.margin.add(r.getWins1() - r.getWins2());
+        }
+        
+        void merge(Totals other) {
+            this.wins1.merge(other.wins1);
+            this.ties.merge(other.ties);
+            this.wins2.merge(other.wins2);
+            this.margin.merge(other.margin);
+            if (this.failed == 0)
+                this.firstError = other.firstError;
+            this.failed += other.failed;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || args.length % 2 == 0) {
+            System.out.println("Usage: java Trials <player1> <player2> <trials> [options]");
+            System.out.println("where <player1> = class name of first bot.");
+            System.out.println("      <player2> = class name of second bot.");
+            System.out.println("      <trials>  = number of matches to play.");
+            System.out.println("Options:");
+            System.out.println("      -rounds <n>    = rounds per match (default 10000).");
+            System.out.println("      -seed <seed>   = seed for the trials (default random).");
+            System.out.println("      -threads <t>   = parallel matches (default number of cores).");
+            System.out.println("Example:");
+            System.out.println("java Trials MyocainePowder NashBot 100");
+            System.exit(-1);
+        }
+        
+        String bot1 = args[0];
+        String bot2 = args[1];
+        long numTrials = Long.parseLong(args[2]);
+        long numRounds = 10000;
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 3; i < args.length; i += 2) {
+            if (args[i].equals("-rounds"))
+                numRounds = Long.parseLong(args[i + 1]);
+            else if (args[i].equals("-seed"))
+                seed = Long.parseLong(args[i + 1]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[i + 1]);
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        
+        System.out.println("Beginning " + numTrials + " tournaments between " +
+                           bot1 + " and " + bot2);
+        Totals totals = run(bot1, bot2, numTrials, numRounds, seed, threads);
+        if (totals.failed > 0)
+            System.out.println(totals.failed + " trials failed, e.g. " +
+                               totals.firstError);
+        System.out.println();
+        
+        double b1avg = totals.wins1.getMean();
+        double b2avg = totals.wins2.getMean();
+        System.out.println(bot1 + " average wins:  " + b1avg);
+        System.out.println("Average ties:  " + totals.ties.getMean());
+        System.out.println(bot2 + " average wins:  " + b2avg);
+        System.out.println("Margin of victory:  " + Math.abs(b1avg - b2avg));
+        
+        System.out.println();
+        System.out.println("Over " + totals.wins1.getCount() +
+                           " trials (mean, standard deviation, 95% CI):");
+        print(bot1 + " wins", totals.wins1);
+        print("Ties", totals.ties);
+        print(bot2 + " wins", totals.wins2);
+        print(bot1 + " - " + bot2, totals.margin);
+    }
+    
+    /** Plays the trials in parallel, each with its own seed derived from the
+      * trial index, and combines their statistics.
+      */
+    static Totals run(String bot1, String bot2, long numTrials,
+                      long numRounds, long seed, int threads)
+        throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> LongStream.range(0, numTrials).parallel()
+                .mapToObj(i -> new Match(bot1, bot2, numRounds,
+                                         trialSeed(seed, i)).run())
+                .collect(Totals::new, Totals::add, Totals::merge)).get();
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+    
+    /** Returns the seed of the given trial. */
+    static long trialSeed(long seed, long trial) {
+        return new SplittableRandom(seed + trial * 0x9E3779B97F4A7C15L)
+            .nextLong();
+    }
+    
+    private static void print(String label, RunningStats stats) {
+        double moe = stats.getMarginOfError(Z_95);
+        System.out.printf("%-40s %10.2f %10.2f   [%.2f, %.2f]%n", label,
+                          stats.getMean(), stats.getStandardDeviation(),
+                          stats.getMean() - moe, stats.getMean() + moe);
+    }
+    
+}
@@ -4,7 +4,7 @@ import java.util.*;
   * 
   * @author Ross Kruse
   */
-public class WolfBot implements RoShamBot {
+public class WolfBot implements RoShamBot, Randomized, Snapshottable {
     public Map<List<Integer>,List<Double>> qValues;
     public Map<List<Integer>,List<Double>> piValues;
     public Map<List<Integer>,List<Double>> avgPiValues;
@@ -16,6 +16,7 @@ public class WolfBot implements RoShamBot {
     public int numStates;
     public List<Integer> curState;
     public Action lastAction;
+    private SplittableRandom random = new SplittableRandom();
 
     /*The constructor for the WolfBot class, learning rates must be changed
      * at the top of the function
@@ -81,9 +82,44 @@ public class WolfBot implements RoShamBot {
         } 
     }
     
+    /*Sets the random source used to pick actions from the pi values
+     */
+    public void setRandom(SplittableRandom random){
+        this.random = random;
+    }
+    
+    /*Copies the learned tables and the current state, for forking a match.
+     * The state keys are never changed once stored, so they are shared.
+     */
+    public WolfBot copy(){
+        WolfBot copy = new WolfBot();
+        copy.qValues = copyTable(this.qValues);
+        copy.piValues = copyTable(this.piValues);
+        copy.avgPiValues = copyTable(this.avgPiValues);
+        copy.cValues = new HashMap<List<Integer>,Integer>(this.cValues);
+        copy.alpha = this.alpha;
+        copy.deltaL = this.deltaL;
+        copy.deltaW = this.deltaW;
+        copy.gamma = this.gamma;
+        copy.numStates = this.numStates;
+        copy.curState = new ArrayList<Integer>(this.curState);
+        copy.lastAction = this.lastAction;
+        return copy;
+    }
+    
+    private static Map<List<Integer>,List<Double>> copyTable(
+            Map<List<Integer>,List<Double>> table){
+        Map<List<Integer>,List<Double>> copy =
+            new HashMap<List<Integer>,List<Double>>();
+        for (Map.Entry<List<Integer>,List<Double>> e : table.entrySet()){
+            copy.put(e.getKey(), new ArrayList<Double>(e.getValue()));
+        }
+        return copy;
+    }
+    
     private Action pickAction(List<Integer> state){
         List<Double> actions = piValues.get(state);
-        double choice = Math.random();
+        double choice = this.random.nextDouble();
         double rockChance = actions.get(0);
         double papChance = actions.get(1);
         double sciChance = actions.get(2);
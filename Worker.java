@@ -0,0 +1,122 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Program that plays matches handed to it by a Coordinator, in its own JVM.
+  * 
+  * A worker connects to the coordinator, says how many matches it plays at
+  * once, and then plays each match it is sent with the usual Match and
+  * Arbiter, reporting each result as soon as the match ends. The protocol
+  * is one line of text per message:
+  * 
+  *   worker:      WORKER <threads>
+  *   coordinator: PLAY <id> <player1> <player2> <rounds> <seed> <stop> <deadline>
+  *   worker:      DONE <id> <nanos> <wins1> <ties> <wins2>
+  *   worker:      FAILED <id> <error>
+  *   coordinator: QUIT
+  * 
+  * where stop is the early-stop check interval and deadline the per-move
+  * deadline in nanoseconds, each 0 if unused. The coordinator starts
+  * workers on its own machine itself, and workers on other machines can
+  * be started by hand with its address.
+  */
+public class Worker {
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java Worker <host> <port> [options]");
+            System.out.println("where <host> = address of the coordinator.");
+            System.out.println("      <port> = port the coordinator listens on.");
+            System.out.println("Options:");
+            System.out.println("      -threads <t>   = parallel matches (default number of cores).");
+            System.out.println("Example:");
+            System.out.println("java Worker localhost 7070 -threads 4");
+            System.exit(-1);
+        }
+        
+        String host = args[0];
+        int port = 0;
+        try {
+            port = Integer.parseInt(args[1]);
+        }
+        catch (NumberFormatException e) {
+            System.out.println("Error: invalid value for port.");
+            System.exit(-1);
+        }
+        if (port < 1 || port > 0xFFFF) {
+            System.out.println("Error: invalid value for port.");
+            System.exit(-1);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                System.out.println("Error: missing value for " + args[i] + ".");
+                System.exit(-1);
+            }
+            if (args[i].equals("-threads")) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                }
+                catch (NumberFormatException e) {
+                    System.out.println("Error: invalid value for threads.");
+                    System.exit(-1);
+                }
+                if (threads < 1) {
+                    System.out.println("Error: invalid value for threads.");
+                    System.exit(-1);
+                }
+            }
+            else {
+                System.out.println("Error: unknown option " + args[i] + ".");
+                System.exit(-1);
+            }
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (Socket socket = new Socket(host, port)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true,
+                                              StandardCharsets.UTF_8);
+            out.println("WORKER " + threads);
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("QUIT")) {
+                String[] tokens = line.split(" ");
+                if (tokens.length != 8 || !tokens[0].equals("PLAY")) {
+                    System.err.println("Worker: ignoring \"" + line + "\"");
+                    continue;
+                }
+                pool.execute(() -> play(tokens, out));
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    /** Plays the match of a PLAY message and reports its result. */
+    private static void play(String[] tokens, PrintWriter out) {
+        String id = tokens[1];
+        Match match = new Match(tokens[2], tokens[3], Long.parseLong(tokens[4]),
+                                Long.parseLong(tokens[5]));
+        int stop = Integer.parseInt(tokens[6]);
+        long deadlineNanos = Long.parseLong(tokens[7]);
+        if (stop > 0)
+            match.stopEarly(new EarlyStop(stop));
+        if (deadlineNanos > 0)
+            match.moveDeadline(deadlineNanos, 10);
+        MatchResult r = match.run();
+        String reply = r.isFailed()
+            ? "FAILED " + id + " " + r.getError().replaceAll("\\s+", " ")
+            : "DONE " + id + " " + r.getDurationNanos() + " " + r.getWins1() +
+              " " + r.getTies() + " " + r.getWins2();
+        synchronized (out) {
+            out.println(reply);
+        }
+    }
+    
+}
@@ -0,0 +1,111 @@
+package rps.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the cost of one getNextMove call for each bot, after the bot has
+  * already played a given number of rounds against a fixed scripted
+  * opponent.
+  * 
+  * Several bots search their whole history on every move, so the cost per
+  * move grows with the length of the match. Every measurement iteration
+  * therefore starts from a fresh bot that has played exactly {@code history}
+  * rounds, and times a short batch of further moves, so the history barely
+  * grows while it is being measured. Scores are the time for one batch of
+  * BATCH (100) moves, not for a single move.
+  * 
+  * The bots live in the unnamed package, which code in a named package (as
+  * JMH requires) cannot refer to, so they are created and called through
+  * method handles. The handles are the same for every bot, so the
+  * comparison between bots is unaffected.
+  * 
+  * The quadratic bots take a very long time to reach 1,000,000 rounds of
+  * history; restrict the run with e.g. "-p history=1000,10000".
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = GetNextMoveBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = GetNextMoveBenchmark.BATCH)
+@Fork(1)
+public class GetNextMoveBenchmark {
+    
+    static final int BATCH = 100;
+    
+    // Opponent moves are drawn from a fixed seed, so every bot and every run
+    // sees the same script.
+    private static final long SCRIPT_SEED = 20150222L;
+    
+    @Param({ "ApeBot", "DownSejiroKriegBot", "FreakyCountzBot", "MetaBot",
+             "MetaMyocainePowder", "MixedBot", "MyocainePowder",
+             "MyocainePowderSimple", "NashBot", "NoRegrets",
+             "SejiroKriegBot", "SolidAsARockBot", "TotallyNotACheaterBot",
+             "UpSejiroKriegBot", "WolfBot" })
+    public String bot;
+    
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int history;
+    
+    private MethodHandle getNextMove; // (Object bot, Object action) Object
+    private Object[] actions;
+    private Object instance;
+    private SplittableRandom script;
+    private Object lastOpponentMove;
+    
+    @Setup(Level.Trial)
+    public void loadBot() throws Throwable {
+        Class<?> actionClass = Class.forName("Action");
+        Class<?> botInterface = Class.forName("RoShamBot");
+        this.actions = actionClass.getEnumConstants();
+        this.getNextMove = MethodHandles.publicLookup()
+            .findVirtual(botInterface, "getNextMove",
+                         MethodType.methodType(actionClass, actionClass))
+            .asType(MethodType.methodType(Object.class, Object.class,
+                                          Object.class));
+    }
+    
+    /** Creates a fresh bot and plays it through the history rounds. */
+    @Setup(Level.Iteration)
+    public void playHistory() throws Throwable {
+        this.instance = Class.forName(this.bot).getDeclaredConstructor()
+            .newInstance();
+        Class<?> randomized = Class.forName("Randomized");
+        if (randomized.isInstance(this.instance))
+            randomized.getMethod("setRandom", SplittableRandom.class)
+                .invoke(this.instance, new SplittableRandom(SCRIPT_SEED + 1));
+        
+        this.script = new SplittableRandom(SCRIPT_SEED);
+        this.lastOpponentMove = this.actions[0];
+        for (int i = 0; i < this.history; i++)
+            move();
+    }
+    
+    private Object move() throws Throwable {
+        Object played = this.getNextMove.invokeExact(this.instance,
+                                                     this.lastOpponentMove);
+        this.lastOpponentMove = this.actions[this.script.nextInt(3)];
+        return played;
+    }
+    
+    @Benchmark
+    public Object getNextMove() throws Throwable {
+        return move();
+    }
+    
+}